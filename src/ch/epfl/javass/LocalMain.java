@@ -10,7 +10,10 @@ import java.util.Random;
 import ch.epfl.javass.gui.GraphicalPlayerAdapter;
 import ch.epfl.javass.jass.Jass;
 import ch.epfl.javass.jass.JassGame;
+import ch.epfl.javass.jass.MctsEngine;
 import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.MctsPlayer.Parallelism;
+import ch.epfl.javass.jass.MctsSettings;
 import ch.epfl.javass.jass.PacedPlayer;
 import ch.epfl.javass.jass.Player;
 import ch.epfl.javass.jass.PlayerId;
@@ -30,6 +33,11 @@ public final class LocalMain extends Application {
     private static final int MIN_TIME = 2;
     private static final int DEFAULT_ITERATIONS = 10_000;
     private static final int SEED_INDEX = 4;
+    /*
+     * Number of root-parallel trees of each simulated player, fixed so that a
+     * seeded game doesn't depend on the number of processors
+     */
+    private static final int WORKERS = 4;
 
     /**
      * Launches the application with the given args
@@ -63,10 +71,11 @@ public final class LocalMain extends Application {
         if (!(arguments.size() == PlayerId.COUNT
                 || arguments.size() == SEED_INDEX + 1))
             printError(
-                    "Utilisation: java ch.epfl.javass.LocalMain <j1>…<j4> [<graine>]\noù :\n<jn> spécifie le joueur n, ainsi:\n  h:<nom>  un joueur humain nommé <nom>\n  s:<nom>:<itérations>  un joueur simulé nommé <nom> et s'éxécutant avec <itérations> itérations\n  r:<nom>:<IP>  un joueur distant nommé <nom> dont le serveur s'éxécute sur l'ordinateur dont l'adresse IP est <IP>\n[<graine>] spécifie la graine à utiliser pour générer les graines des différents générateurs aléatoires du programme");
+                    "Utilisation: java ch.epfl.javass.LocalMain <j1>…<j4> [<graine>]\noù :\n<jn> spécifie le joueur n, ainsi:\n  h:<nom>  un joueur humain nommé <nom>\n  s:<nom>:<itérations>  un joueur simulé nommé <nom> et s'éxécutant avec <itérations> itérations\n  r:<nom>:<IP>  un joueur distant nommé <nom> dont le serveur s'éxécute sur l'ordinateur dont l'adresse IP est <IP>\n[<graine>] spécifie la graine à utiliser pour générer les graines des différents générateurs aléatoires du programme, afin de rejouer une partie ; sans graine, les joueurs simulés continuent à chercher pendant leur temps de jeu minimal, ce qui rend la partie non reproductible");
 
         // Optional random seed argument
-        if (arguments.size() == SEED_INDEX + 1) {
+        boolean seeded = arguments.size() == SEED_INDEX + 1;
+        if (seeded) {
             long seed = 0L;
             try {
                 seed = Long.parseLong(arguments.get(SEED_INDEX));
@@ -79,6 +88,18 @@ public final class LocalMain extends Application {
         } else
             rng = new Random();
 
+        // The simulated players play one after the other and share an
+        // engine, on which each of them searches its trees in parallel. It
+        // is only created if there is a simulated player
+        boolean simulated = false;
+        for (int i = 0; i < PlayerId.COUNT; i++)
+            simulated |= StringSerializer.split(':', arguments.get(i))[0]
+                    .equals("s");
+        int processors = Runtime.getRuntime().availableProcessors();
+        MctsEngine engine = simulated
+                ? new MctsEngine(Math.min(WORKERS, processors))
+                : null;
+
         // Initializing all seeds with rng
         gameSeed = rng.nextLong();
         for (int i = 0; i < PlayerId.COUNT; i++)
@@ -142,9 +163,14 @@ public final class LocalMain extends Application {
 
             if (playerType.equals("s")) {
                 MctsPlayer mctsPlayer = new MctsPlayer(PlayerId.ALL.get(i),
-                        playerSeeds[i], iterations);
+                        playerSeeds[i],
+                        MctsSettings.ofIterations(iterations)
+                                .withWorkers(WORKERS, Parallelism.ROOT),
+                        engine);
+                // searching until the minimum time has elapsed depends on
+                // the clock, so a seeded game keeps the fixed iterations
                 players.put(PlayerId.ALL.get(i),
-                        new PacedPlayer(mctsPlayer, MIN_TIME));
+                        new PacedPlayer(mctsPlayer, MIN_TIME, !seeded));
             }
 
             if (playerType.equals("r")) {
@@ -173,6 +199,9 @@ public final class LocalMain extends Application {
                 }
             } catch (UncheckedIOException e) {
                 printError("Une erreur est survenue.");
+            } finally {
+                if (engine != null)
+                    engine.close();
             }
         });
 
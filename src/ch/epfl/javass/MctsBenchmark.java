@@ -0,0 +1,1022 @@
+package ch.epfl.javass;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import ch.epfl.javass.jass.Card;
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.CardSet;
+import ch.epfl.javass.jass.Jass;
+import ch.epfl.javass.jass.JassGame;
+import ch.epfl.javass.jass.LinearValueFunction;
+import ch.epfl.javass.jass.MctsEngine;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.MctsSettings;
+import ch.epfl.javass.jass.PackedCard;
+import ch.epfl.javass.jass.PackedCardSet;
+import ch.epfl.javass.jass.PackedRollout;
+import ch.epfl.javass.jass.PackedScore;
+import ch.epfl.javass.jass.PackedTrick;
+import ch.epfl.javass.jass.Player;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.RolloutPolicy;
+import ch.epfl.javass.jass.Score;
+import ch.epfl.javass.jass.TeamId;
+import ch.epfl.javass.jass.Trick;
+import ch.epfl.javass.jass.TurnState;
+
+/**
+ * Contains a program measuring the performance of MctsPlayer. Its first
+ * argument is the name of the benchmark to run, the others are given to the
+ * benchmark:
+ * <ul>
+ * <li>politiques (default): measures the strength of the rollout policies
+ * against the processor time they cost. Each policy plays games against the
+ * UNIFORM policy, once on each side of every deal, and the points won are
+ * reported along with the processor time per card. Arguments (all
+ * optional): number of deals, number of iterations per card, and time budget
+ * per card in milliseconds, which replaces the iterations if it is
+ * given</li>
+ * <li>recherche: measures the speed of long searches, whose trees are deep,
+ * from the first card of random deals. Arguments (all optional): number of
+ * deals and number of iterations per search</li>
+ * <li>moteur: plays games at several tables at once, all the players sharing
+ * an MctsEngine, and reports the load of the engine. Arguments (all
+ * optional): number of tables, number of iterations per card and number of
+ * workers of the engine</li>
+ * <li>evaluation: plays games between players estimating the end of the
+ * simulated turns with a LinearValueFunction and players playing them until
+ * the end, like politiques. The function is loaded from a file of weights, or
+ * trained on random turns and saved to it if the file does not exist.
+ * Arguments (all optional): file of weights, number of deals, number of
+ * iterations per card and number of cards played before the estimation</li>
+ * <li>selection: measures PackedCardSet.get and PackedCardSet.random against
+ * a loop clearing the lowest cards of the set, and against the same random
+ * choice selecting the card with that loop, on random sets, after checking
+ * that they give the same cards. Arguments (all optional): number of
+ * selections per measure</li>
+ * <li>allocations: checks that the turns finished by PackedRollout, once
+ * compiled, allocate no memory, unless the assertions are enabled as they
+ * allocate, then measures the memory allocated per card played, by games
+ * whose players play their first playable card, which only measures the
+ * game and its value objects, then by games of MctsPlayers. Arguments (all
+ * optional): number of games and number of iterations per card</li>
+ * <li>regles: checks the points and the comparisons of the cards, read from
+ * tables by PackedCard, against the code they replaced for all the trumps
+ * and cards, and the playable cards, read from tables by PackedTrick,
+ * against the code they replaced for all the trumps, base colors and best
+ * cards of a trick and hands combining subsets of classes of cards, then
+ * measures the time per card of random turns played to their
+ * end on packed components, the cards being chosen by the UNIFORM policy
+ * among the playable ones, as in the turns simulated by MctsPlayer, which
+ * mostly measures the rules of the game. Arguments (all optional): number of
+ * turns per measure</li>
+ * </ul>
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+public final class MctsBenchmark {
+
+    private static final int DEFAULT_GAMES = 4;
+    private static final int DEFAULT_ITERATIONS = 2_000;
+    private static final int DEFAULT_DEALS = 20;
+    private static final int DEFAULT_SEARCH_ITERATIONS = 100_000;
+    /*
+     * Number of deals searched before the measures start, so that the code
+     * is compiled
+     */
+    private static final int WARMUP_DEALS = 5;
+    private static final int DEFAULT_TABLES = 8;
+    /*
+     * Time between two measures of the queue of the engine, in milliseconds
+     */
+    private static final long SAMPLING_PERIOD = 100;
+    private static final String DEFAULT_WEIGHTS = "evaluation.txt";
+    private static final int TRAINING_TURNS = 20_000;
+    private static final int DEFAULT_EVALUATION_DEPTH = 8;
+    private static final int DEFAULT_SELECTIONS = 10_000_000;
+    /*
+     * Number of random sets, and number of times each measure is repeated,
+     * the first ones compiling the code
+     */
+    private static final int SETS = 1 << 12;
+    private static final int MEASURES = 5;
+    private static final int DEFAULT_ROLLOUTS = 200_000;
+    /*
+     * Number of turns finished by each measure of the memory allocated by
+     * PackedRollout
+     */
+    private static final int ALLOCATION_ROLLOUTS = 20_000;
+    /*
+     * Bean giving the memory allocated by this thread
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            (com.sun.management.ThreadMXBean) ManagementFactory
+                    .getThreadMXBean();
+
+    /**
+     * Private constructor because MctsBenchmark is non instantiable
+     */
+    private MctsBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark named by the first of the given args
+     */
+    public static void main(String[] args) {
+        String benchmark = args.length > 0 ? args[0] : "politiques";
+        String[] arguments = Arrays.copyOfRange(args,
+                Math.min(1, args.length), args.length);
+
+        switch (benchmark) {
+        case "politiques":
+            comparePolicies(arguments);
+            break;
+        case "recherche":
+            measureSearches(arguments);
+            break;
+        case "moteur":
+            measureEngine(arguments);
+            break;
+        case "evaluation":
+            compareEvaluators(arguments);
+            break;
+        case "selection":
+            measureSelection(arguments);
+            break;
+        case "allocations":
+            measureAllocations(arguments);
+            break;
+        case "regles":
+            measureRollouts(arguments);
+            break;
+        default:
+            System.err.println("Banc d'essai inconnu : " + benchmark);
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Plays games between each rollout policy and the UNIFORM policy
+     */
+    private static void comparePolicies(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_GAMES;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_ITERATIONS;
+        MctsSettings settings = args.length > 2
+                ? MctsSettings.ofTimeBudget(Long.parseLong(args[2]))
+                : MctsSettings.ofIterations(iterations);
+
+        Map<String, RolloutPolicy> policies = new LinkedHashMap<>();
+        policies.put("uniforme", RolloutPolicy.UNIFORM);
+        policies.put("glouton", RolloutPolicy.GREEDY);
+        policies.put("epsilon-glouton (0.2)",
+                RolloutPolicy.epsilonGreedy(0.2));
+
+        for (Map.Entry<String, RolloutPolicy> e : policies.entrySet()) {
+            compare(e.getKey(), "uniforme", games,
+                    settings.withRolloutPolicy(e.getValue()), settings);
+        }
+    }
+
+    /*
+     * Trains a LinearValueFunction, or loads it from the given file, then
+     * plays games between players estimating the end of the simulated turns
+     * with it and players playing them until the end
+     */
+    private static void compareEvaluators(String[] args) {
+        Path file = Paths.get(args.length > 0 ? args[0] : DEFAULT_WEIGHTS);
+        int games = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_GAMES;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2])
+                : DEFAULT_ITERATIONS;
+        int depth = args.length > 3 ? Integer.parseInt(args[3])
+                : DEFAULT_EVALUATION_DEPTH;
+
+        LinearValueFunction evaluator;
+        if (Files.exists(file)) {
+            evaluator = LinearValueFunction.load(file);
+        } else {
+            long start = System.nanoTime();
+            evaluator = LinearValueFunction.train(TRAINING_TURNS,
+                    RolloutPolicy.UNIFORM, 0);
+            evaluator.save(file);
+            System.out.printf("%d tours d'entraînement : %.1f s, poids"
+                    + " enregistrés dans %s%n", TRAINING_TURNS,
+                    (System.nanoTime() - start) / 1e9, file);
+        }
+        System.out.println("Poids : " + evaluator);
+
+        MctsSettings settings = MctsSettings.ofIterations(iterations);
+        compare("évaluation après " + depth + " cartes", "tours complets",
+                games, settings.withLeafEvaluator(evaluator, depth),
+                settings);
+    }
+
+    /*
+     * Plays each deal once for each team between the tested settings and the
+     * reference ones, and reports the average points won and the processor
+     * time per card of the tested settings
+     */
+    private static void compare(String testedName, String referenceName,
+            int games, MctsSettings tested, MctsSettings reference) {
+        long testedPoints = 0;
+        long referencePoints = 0;
+        long cpuNanos = 0;
+        int cards = 0;
+
+        for (int game = 0; game < games; game++) {
+            for (TeamId team : TeamId.ALL) {
+                Map<PlayerId, MeasuredPlayer> players = play(game, team,
+                        tested, reference);
+                Score score = players.get(PlayerId.PLAYER_1).lastScore;
+                testedPoints += score.totalPoints(team);
+                referencePoints += score.totalPoints(team.other());
+                for (MeasuredPlayer player : players.values()) {
+                    if (player.team == team) {
+                        cpuNanos += player.cpuNanos;
+                        cards += player.cards;
+                    }
+                }
+            }
+        }
+
+        int played = 2 * games;
+        System.out.printf(
+                "%s : %d points par partie contre %d pour %s,"
+                        + " %.2f ms de processeur par carte%n",
+                testedName, testedPoints / played, referencePoints / played,
+                referenceName, cards == 0 ? 0 : cpuNanos / 1e6 / cards);
+    }
+
+    /*
+     * Searches the first card of random deals, and reports the average speed
+     * of the searches
+     */
+    private static void measureSearches(String[] args) {
+        int deals = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_DEALS;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_SEARCH_ITERATIONS;
+
+        Random rng = new Random(0);
+        long iterationsDone = 0;
+        long nanos = 0;
+        for (int deal = -WARMUP_DEALS; deal < deals; deal++) {
+            List<Card> cards = new ArrayList<>();
+            CardSet.ALL_CARDS.forEach(cards::add);
+            Collections.shuffle(cards, rng);
+            CardSet hand = CardSet.of(cards.subList(0, Jass.HAND_SIZE));
+            Color trump = Color.ALL.get(rng.nextInt(Color.COUNT));
+
+            MctsPlayer player = new MctsPlayer(PlayerId.PLAYER_1,
+                    rng.nextLong(), iterations);
+            player.setTrump(trump);
+            player.updateHand(hand);
+            player.cardToPlay(
+                    TurnState.initial(trump, Score.INITIAL, PlayerId.PLAYER_1),
+                    hand);
+
+            if (deal >= 0) {
+                iterationsDone += player.lastStatistics().iterations();
+                nanos += player.lastStatistics().nanos();
+            }
+        }
+
+        System.out.printf(
+                "%d recherches de %d itérations : %.0f itérations/s,"
+                        + " %.2f µs par itération%n",
+                deals, iterations, iterationsDone * 1e9 / nanos,
+                nanos / 1e3 / iterationsDone);
+    }
+
+    /*
+     * Plays a game at each table at once, on an engine shared by all the
+     * players, and reports the load of the engine
+     */
+    private static void measureEngine(String[] args) {
+        int tables = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_TABLES;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_ITERATIONS;
+        int workers = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+
+        try (MctsEngine engine = new MctsEngine(workers)) {
+            MctsSettings settings = MctsSettings.ofIterations(iterations);
+            List<Thread> games = new ArrayList<>(tables);
+            long start = System.nanoTime();
+            for (int table = 0; table < tables; table++) {
+                int game = table;
+                Thread thread = new Thread(
+                        () -> play(game, settings, engine));
+                thread.start();
+                games.add(thread);
+            }
+
+            long samples = 0;
+            long queueDepths = 0;
+            int maxQueueDepth = 0;
+            for (Thread game : games) {
+                while (game.isAlive()) {
+                    int queueDepth = engine.queueDepth();
+                    samples++;
+                    queueDepths += queueDepth;
+                    maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+                    try {
+                        game.join(SAMPLING_PERIOD);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+
+            System.out.printf(
+                    "%d tables sur %d travailleurs : %.1f s, file d'attente"
+                            + " moyenne %.1f (maximum %d),"
+                            + " utilisation %.0f %%%n",
+                    tables, workers, (System.nanoTime() - start) / 1e9,
+                    samples == 0 ? 0 : (double) queueDepths / samples,
+                    maxQueueDepth, 100 * engine.utilization());
+        }
+    }
+
+    /*
+     * Measures the time taken to select a card of random sets by its index
+     */
+    private static void measureSelection(String[] args) {
+        int selections = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_SELECTIONS;
+
+        SplittableRandom rng = new SplittableRandom(0);
+        long[] sets = new long[SETS];
+        int[] indexes = new int[SETS];
+        for (int i = 0; i < SETS; i++) {
+            do {
+                sets[i] = rng.nextLong() & PackedCardSet.ALL_CARDS;
+            } while (sets[i] == PackedCardSet.EMPTY);
+            indexes[i] = rng.nextInt(PackedCardSet.size(sets[i]));
+        }
+        for (long set : sets) {
+            for (int i = 0; i < PackedCardSet.size(set); i++) {
+                if (PackedCardSet.get(set, i) != loopGet(set, i))
+                    throw new AssertionError(PackedCardSet.toString(set));
+            }
+        }
+
+        for (int measure = 0; measure < MEASURES; measure++) {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < selections; i++)
+                checksum += loopGet(sets[i & (SETS - 1)],
+                        indexes[i & (SETS - 1)]);
+            long loopNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < selections; i++)
+                checksum += PackedCardSet.get(sets[i & (SETS - 1)],
+                        indexes[i & (SETS - 1)]);
+            long getNanos = System.nanoTime() - start;
+
+            SplittableRandom pickRng = new SplittableRandom(measure);
+            start = System.nanoTime();
+            for (int i = 0; i < selections; i++)
+                checksum += loopRandom(sets[i & (SETS - 1)], pickRng);
+            long loopRandomNanos = System.nanoTime() - start;
+
+            pickRng = new SplittableRandom(measure);
+            start = System.nanoTime();
+            for (int i = 0; i < selections; i++)
+                checksum += PackedCardSet.random(sets[i & (SETS - 1)],
+                        pickRng);
+            long randomNanos = System.nanoTime() - start;
+
+            System.out.printf(
+                    "boucle %.2f ns, get %.2f ns, random avec la boucle"
+                            + " %.2f ns, random %.2f ns par sélection"
+                            + " (somme %d)%n",
+                    (double) loopNanos / selections,
+                    (double) getNanos / selections,
+                    (double) loopRandomNanos / selections,
+                    (double) randomNanos / selections, checksum);
+        }
+    }
+
+    /*
+     * @return (int): the index'th card of the set, found by clearing its
+     * lowest cards one by one
+     */
+    private static int loopGet(long pkCardSet, int index) {
+        for (int i = 0; i < index; i++)
+            pkCardSet &= pkCardSet - 1;
+        return Long.numberOfTrailingZeros(pkCardSet);
+    }
+
+    /*
+     * @return (int): a card of the set chosen as PackedCardSet.random does,
+     * but selected by clearing the lowest cards of the set one by one
+     */
+    private static int loopRandom(long pkCardSet, SplittableRandom rng) {
+        long size = PackedCardSet.size(pkCardSet);
+        long product = Integer.toUnsignedLong(rng.nextInt()) * size;
+        if (Integer.toUnsignedLong((int) product) < size) {
+            long threshold = (1L << Integer.SIZE) % size;
+            while (Integer.toUnsignedLong((int) product) < threshold)
+                product = Integer.toUnsignedLong(rng.nextInt()) * size;
+        }
+        return loopGet(pkCardSet, (int) (product >>> Integer.SIZE));
+    }
+
+    /*
+     * Checks the rules read from tables, then measures the time taken to play
+     * random turns to their end
+     */
+    private static void measureRollouts(String[] args) {
+        int turns = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_ROLLOUTS;
+
+        checkCards();
+        checkPlayableCards();
+
+        long[] hands = new long[PlayerId.COUNT];
+        for (int measure = 0; measure < MEASURES; measure++) {
+            SplittableRandom rng = new SplittableRandom(measure);
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int turn = 0; turn < turns; turn++)
+                checksum += rollout(rng, hands);
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("%d tours : %.1f ns par carte (somme %d)%n",
+                    turns, (double) nanos / turns / Jass.TRICKS_PER_TURN
+                            / PlayerId.COUNT,
+                    checksum);
+        }
+    }
+
+    /*
+     * Checks PackedCard.points and PackedCard.isBetter against the code they
+     * replaced, for all the trumps and cards
+     */
+    private static void checkCards() {
+        for (Color trump : Color.ALL) {
+            for (long l = PackedCardSet.ALL_CARDS; l != PackedCardSet.EMPTY;
+                    l = PackedCardSet.withoutLowestCard(l)) {
+                int cardL = PackedCardSet.lowestCard(l);
+                if (PackedCard.points(trump, cardL) != referencePoints(trump,
+                        cardL))
+                    throw new AssertionError(PackedCard.toString(cardL));
+
+                for (long r = PackedCardSet.ALL_CARDS; r != PackedCardSet.EMPTY;
+                        r = PackedCardSet.withoutLowestCard(r)) {
+                    int cardR = PackedCardSet.lowestCard(r);
+                    if (PackedCard.isBetter(trump, cardL,
+                            cardR) != referenceIsBetter(trump, cardL, cardR))
+                        throw new AssertionError(PackedCard.toString(cardL)
+                                + " " + PackedCard.toString(cardR));
+                }
+            }
+        }
+        System.out.println("Points et comparaisons des cartes vérifiés");
+    }
+
+    /*
+     * @return (int): the points of the given packed card, computed as
+     * PackedCard.points did before it read them from a table
+     */
+    private static int referencePoints(Color trump, int pkCard) {
+        // 1st option: the card's color is trump
+        if (PackedCard.color(pkCard).equals(trump)) {
+            switch (PackedCard.rank(pkCard)) {
+            case NINE:
+                return 14;
+            case TEN:
+                return 10;
+            case JACK:
+                return 20;
+            case QUEEN:
+                return 3;
+            case KING:
+                return 4;
+            case ACE:
+                return 11;
+            // SIX, SEVEN AND EIGHT are worth 0 points
+            default:
+                return 0;
+            }
+            // 2nd option: the card's color is not trump
+        } else {
+            switch (PackedCard.rank(pkCard)) {
+            case TEN:
+                return 10;
+            case JACK:
+                return 2;
+            case QUEEN:
+                return 3;
+            case KING:
+                return 4;
+            case ACE:
+                return 11;
+            // SIX, SEVEN, EIGHT and NINE are worth 0 points
+            default:
+                return 0;
+            }
+        }
+    }
+
+    /*
+     * @return (boolean): whether the first packed card beats the second one,
+     * computed as PackedCard.isBetter did before it read it from a table
+     */
+    private static boolean referenceIsBetter(Color trump, int pkCardL,
+            int pkCardR) {
+        Color colorL = PackedCard.color(pkCardL);
+        Color colorR = PackedCard.color(pkCardR);
+        // 1st case: the 2 cards have the same color
+        if (colorL.equals(colorR)) {
+            if (colorL.equals(trump)) {
+                // Subcase 1: the color is trump -> we use
+                // trumpOrdinals
+                return PackedCard.rank(pkCardL).trumpOrdinal() > PackedCard
+                        .rank(pkCardR).trumpOrdinal();
+            }
+            // Subcase 2: the color is not trump -> we directly compare
+            // their ranks
+            return PackedCard.rank(pkCardL).ordinal() > PackedCard
+                    .rank(pkCardR).ordinal();
+        }
+        // 2nd case: the two cards have different colors
+        if (colorL.equals(trump) || colorR.equals(trump)) {
+            // Subcase 1: one of the cards is trump -> it automatically wins
+            return colorL.equals(trump);
+        }
+        // Subcase 2: none of the cards is trump -> they can't be compared
+        return false;
+    }
+
+    /*
+     * Checks PackedTrick.playableCards against the code it replaced, for all
+     * the trumps, base colors and best cards of a trick, on which the
+     * playable cards depend. The best card is played first, or after the six
+     * of the base color if it is a trump of another color
+     */
+    private static void checkPlayableCards() {
+        for (Color trump : Color.ALL) {
+            int empty = PackedTrick.firstEmpty(trump, PlayerId.PLAYER_1);
+            for (Color base : Color.ALL) {
+                int six = PackedCard.pack(base, Card.Rank.SIX);
+                for (long b = PackedCardSet.ALL_CARDS; b != PackedCardSet.EMPTY;
+                        b = PackedCardSet.withoutLowestCard(b)) {
+                    int best = PackedCardSet.lowestCard(b);
+                    if (PackedCard.color(best) == base)
+                        checkHands(PackedTrick.withAddedCard(empty, best),
+                                best);
+                    else if (PackedCard.color(best) == trump)
+                        checkHands(PackedTrick.withAddedCard(
+                                PackedTrick.withAddedCard(empty, six), best),
+                                best);
+                }
+            }
+        }
+        System.out.println("Cartes jouables vérifiées");
+    }
+
+    /*
+     * Checks PackedTrick.playableCards for the given trick, whose best card
+     * is given, and hands made of the cards which aren't in it. These cards
+     * are split in classes: the trumps better than the best card, the weaker
+     * ones, the bour, then each other color. Every subset of each class is
+     * combined with the other classes, each of them either empty or full
+     */
+    private static void checkHands(int pkTrick, int best) {
+        long cards = PackedCardSet.ALL_CARDS;
+        for (int i = 0; i < PackedTrick.size(pkTrick); i++)
+            cards = PackedCardSet.remove(cards, PackedTrick.card(pkTrick, i));
+
+        Color trump = PackedTrick.trump(pkTrick);
+        long trumps = PackedCardSet.subsetOfColor(cards, trump);
+        long bour = PackedCardSet.intersection(trumps, PackedCardSet
+                .singleton(PackedCard.pack(trump, Card.Rank.JACK)));
+        long better = PackedCardSet.difference(PackedCardSet
+                .intersection(trumps, PackedCardSet.trumpAbove(best)), bour);
+        long[] classes = new long[Color.COUNT + 2];
+        classes[0] = better;
+        classes[1] = PackedCardSet.difference(trumps,
+                PackedCardSet.union(better, bour));
+        classes[2] = bour;
+        int count = 3;
+        for (Color color : Color.ALL) {
+            if (color != trump)
+                classes[count++] = PackedCardSet.subsetOfColor(cards, color);
+        }
+
+        for (int c = 0; c < classes.length; c++) {
+            for (int full = 0; full < 1 << classes.length; full++) {
+                if ((full & 1 << c) != 0)
+                    continue;
+                long others = PackedCardSet.EMPTY;
+                for (int i = 0; i < classes.length; i++) {
+                    if ((full & 1 << i) != 0)
+                        others = PackedCardSet.union(others, classes[i]);
+                }
+                // goes through the subsets of the class in decreasing order
+                long subset = classes[c];
+                while (true) {
+                    checkHand(pkTrick, PackedCardSet.union(others, subset));
+                    if (subset == PackedCardSet.EMPTY)
+                        break;
+                    subset = (subset - 1) & classes[c];
+                }
+            }
+        }
+    }
+
+    /*
+     * Checks PackedTrick.playableCards for the given trick and hand
+     */
+    private static void checkHand(int pkTrick, long pkHand) {
+        if (PackedTrick.playableCards(pkTrick,
+                pkHand) != referencePlayableCards(pkTrick, pkHand))
+            throw new AssertionError(PackedTrick.toString(pkTrick) + " "
+                    + PackedCardSet.toString(pkHand));
+    }
+
+    /*
+     * @return (long): the cards of the given hand which can be played in the
+     * given trick, which must not be full, computed as
+     * PackedTrick.playableCards did before it read them from tables
+     */
+    private static long referencePlayableCards(int pkTrick, long pkHand) {
+        // If we play first, then we can play any card in our hand
+        if (PackedTrick.isEmpty(pkTrick))
+            return pkHand;
+
+        // The trump color
+        Color trump = PackedTrick.trump(pkTrick);
+        // The base color
+        Color base = PackedTrick.baseColor(pkTrick);
+        // Trump cards in hand
+        long trumpInHand = PackedCardSet.subsetOfColor(pkHand, trump);
+        // Cards of base color in hand
+        long baseInHand = PackedCardSet.subsetOfColor(pkHand, base);
+        // The best card played yet
+        int best = PackedTrick.card(pkTrick, 0);
+        for (int i = 1; i < PackedTrick.size(pkTrick); i++) {
+            if (referenceIsBetter(trump, PackedTrick.card(pkTrick, i), best))
+                best = PackedTrick.card(pkTrick, i);
+        }
+        // Whether the trick has been cut yet, that is if the color of the best
+        // card is trump
+        boolean trickHasBeenCut = PackedCard.color(best) == trump;
+        // If we have trumps to play which are better than bestCard
+        boolean hasBetterTrumps = !PackedCardSet.isEmpty(PackedCardSet
+                .intersection(pkHand, PackedCardSet.trumpAbove(best)));
+
+        // If the base color is trump
+        if (base == trump) {
+            // No trumps in hand or only bour -> play anything
+            if (PackedCardSet.isEmpty(trumpInHand)
+                    || (trumpInHand == PackedCardSet.singleton(
+                            PackedCard.pack(trump, Card.Rank.JACK)))) {
+                return pkHand;
+            }
+
+            // Else play any trump
+            return trumpInHand;
+        }
+
+        // If no base colors in hand
+        if (PackedCardSet.isEmpty(baseInHand)) {
+            if (trickHasBeenCut) {
+                // Hand is only weaker trumps -> play anything
+                if (pkHand == trumpInHand && !hasBetterTrumps)
+                    return pkHand;
+
+                // Else play any card except for weaker trump
+                return PackedCardSet.difference(pkHand,
+                        PackedCardSet.subsetOfColor(
+                                PackedCardSet.complement(
+                                        PackedCardSet.trumpAbove(best)),
+                                trump));
+            }
+            return pkHand;
+        }
+
+        // If trick hasn't been cut, play a base color or a trump
+        if (!trickHasBeenCut)
+            return PackedCardSet.union(trumpInHand, baseInHand);
+
+        // If it has been cut, play a base color or a better trump
+        return PackedCardSet.union(PackedCardSet.intersection(pkHand,
+                PackedCardSet.trumpAbove(best)), baseInHand);
+    }
+
+    /*
+     * Plays a random turn to its end, the hands being stored in the given
+     * array
+     * 
+     * @return (long): the packed score of the turn
+     */
+    private static long rollout(SplittableRandom rng, long[] hands) {
+        deal(rng, hands);
+
+        long pkScore = PackedScore.INITIAL;
+        int pkTrick = PackedTrick.firstEmpty(
+                Color.ALL.get(rng.nextInt(Color.COUNT)),
+                PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+        while (pkTrick != PackedTrick.INVALID) {
+            if (PackedTrick.isFull(pkTrick)) {
+                pkScore = PackedScore.withAdditionalTrick(pkScore,
+                        PackedTrick.winningPlayer(pkTrick).team(),
+                        PackedTrick.points(pkTrick));
+                pkTrick = PackedTrick.nextEmpty(pkTrick);
+                continue;
+            }
+
+            int player = PackedTrick
+                    .player(pkTrick, PackedTrick.size(pkTrick)).ordinal();
+            int card = RolloutPolicy.UNIFORM.cardToPlay(pkTrick,
+                    PackedTrick.playableCards(pkTrick, hands[player]), rng);
+            hands[player] = PackedCardSet.remove(hands[player], card);
+            pkTrick = PackedTrick.withAddedCard(pkTrick, card);
+        }
+        return pkScore;
+    }
+
+    /*
+     * Deals the 36 cards at random in the given array of hands
+     */
+    private static void deal(SplittableRandom rng, long[] hands) {
+        long cards = PackedCardSet.ALL_CARDS;
+        for (int i = 0; i < PlayerId.COUNT; i++) {
+            hands[i] = PackedCardSet.EMPTY;
+            for (int j = 0; j < Jass.HAND_SIZE; j++) {
+                int card = PackedCardSet.random(cards, rng);
+                cards = PackedCardSet.remove(cards, card);
+                hands[i] = PackedCardSet.add(hands[i], card);
+            }
+        }
+    }
+
+    /*
+     * Checks that the turns finished by PackedRollout allocate no memory
+     * once their code is compiled, the first measures compiling it
+     */
+    private static void checkRolloutAllocations() {
+        boolean assertions = false;
+        assert assertions = true;
+        if (assertions) {
+            System.out.println("Allocations de PackedRollout non vérifiées,"
+                    + " les assertions allouant de la mémoire");
+            return;
+        }
+
+        SplittableRandom rng = new SplittableRandom(0);
+        long[] hands = new long[PlayerId.COUNT];
+        long[] possibleCards = new long[PlayerId.COUNT];
+        long[] played = new long[PlayerId.COUNT];
+        long bytes = 0;
+        long checksum = 0;
+        for (int measure = 0; measure < MEASURES; measure++) {
+            long start = allocatedBytes();
+            checksum += finishTurns(rng, hands, possibleCards, played);
+            bytes = allocatedBytes() - start;
+        }
+        if (bytes != 0)
+            throw new AssertionError(bytes + " octets alloués par "
+                    + ALLOCATION_ROLLOUTS + " tours de PackedRollout");
+        System.out.println("Aucune allocation par PackedRollout (somme "
+                + checksum + ")");
+    }
+
+    /*
+     * Finishes ALLOCATION_ROLLOUTS random turns with PackedRollout, once
+     * knowing only the hand of the first player, once knowing all the hands
+     * 
+     * @return (long): the sum of the final packed scores
+     */
+    private static long finishTurns(SplittableRandom rng, long[] hands,
+            long[] possibleCards, long[] played) {
+        long checksum = 0;
+        for (int turn = 0; turn < ALLOCATION_ROLLOUTS; turn++) {
+            deal(rng, hands);
+            int pkTrick = PackedTrick.firstEmpty(
+                    Color.ALL.get(rng.nextInt(Color.COUNT)),
+                    PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+            for (int i = 0; i < PlayerId.COUNT; i++) {
+                possibleCards[i] = i == 0 ? hands[0]
+                        : PackedCardSet.difference(PackedCardSet.ALL_CARDS,
+                                hands[0]);
+                played[i] = PackedCardSet.EMPTY;
+            }
+
+            checksum += PackedRollout.finishTurn(PackedScore.INITIAL,
+                    PackedCardSet.ALL_CARDS, pkTrick, PlayerId.PLAYER_1,
+                    possibleCards, RolloutPolicy.UNIFORM, rng, played);
+            checksum += PackedRollout.finishTurn(PackedScore.INITIAL, pkTrick,
+                    hands, RolloutPolicy.UNIFORM, rng);
+        }
+        return checksum;
+    }
+
+    /*
+     * Measures the memory allocated by this thread per card played, by games
+     * of simple players, then of MctsPlayers searching on this thread
+     */
+    private static void measureAllocations(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_GAMES;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_ITERATIONS;
+
+        checkRolloutAllocations();
+
+        Player simple = (state, hand) -> state.trick().playableCards(hand)
+                .get(0);
+        long bytes = 0;
+        int cards = 0;
+        // the first games compile the code
+        for (int game = -games; game < games; game++) {
+            long start = allocatedBytes();
+            int played = playAll(game, id -> simple);
+            if (game >= 0) {
+                bytes += allocatedBytes() - start;
+                cards += played;
+            }
+        }
+        System.out.printf("joueurs simples : %.0f octets par carte%n",
+                (double) bytes / cards);
+
+        bytes = 0;
+        cards = 0;
+        for (int game = 0; game < games; game++) {
+            int seed = game;
+            long start = allocatedBytes();
+            cards += playAll(game, id -> new MctsPlayer(id,
+                    seed * PlayerId.COUNT + id.ordinal(), iterations));
+            bytes += allocatedBytes() - start;
+        }
+        System.out.printf("MctsPlayer (%d itérations) : %.0f octets par"
+                + " carte%n", iterations, (double) bytes / cards);
+    }
+
+    /*
+     * @return (long): number of bytes allocated by this thread since it
+     * started
+     */
+    private static long allocatedBytes() {
+        // the bean is only looked up once, as looking it up allocates
+        return ALLOCATIONS.getCurrentThreadAllocatedBytes();
+    }
+
+    /*
+     * Plays a game with the players given by the given function
+     *
+     * @return (int): number of cards played
+     */
+    private static int playAll(int game,
+            Function<PlayerId, Player> playerOf) {
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            players.put(id,
+                    new MeasuredPlayer(id.team(), playerOf.apply(id)));
+            playerNames.put(id, id.name());
+        }
+
+        JassGame jassGame = new JassGame(game, players, playerNames);
+        while (!jassGame.isGameOver())
+            jassGame.advanceToEndOfNextTrick();
+
+        int cards = 0;
+        for (Player player : players.values())
+            cards += ((MeasuredPlayer) player).cards;
+        return cards;
+    }
+
+    /*
+     * Plays a game whose players all search with the given settings on the
+     * given engine
+     */
+    private static void play(int game, MctsSettings settings,
+            MctsEngine engine) {
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            players.put(id, new MctsPlayer(id,
+                    game * PlayerId.COUNT + id.ordinal(), settings, engine));
+            playerNames.put(id, id.name());
+        }
+
+        JassGame jassGame = new JassGame(game, players, playerNames);
+        while (!jassGame.isGameOver())
+            jassGame.advanceToEndOfNextTrick();
+    }
+
+    /*
+     * Plays a game in which the given team searches with the tested settings
+     * and the other one with the reference settings
+     *
+     * @return (Map<PlayerId, MeasuredPlayer>): the players of the game
+     */
+    private static Map<PlayerId, MeasuredPlayer> play(int game,
+            TeamId testedTeam, MctsSettings tested, MctsSettings reference) {
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, MeasuredPlayer> measured = new EnumMap<>(
+                PlayerId.class);
+        Map<PlayerId, String> playerNames = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            MctsSettings settings = id.team() == testedTeam ? tested
+                    : reference;
+            MeasuredPlayer player = new MeasuredPlayer(id.team(),
+                    new MctsPlayer(id, game * PlayerId.COUNT + id.ordinal(),
+                            settings));
+            players.put(id, player);
+            measured.put(id, player);
+            playerNames.put(id, id.name());
+        }
+
+        JassGame jassGame = new JassGame(game, players, playerNames);
+        while (!jassGame.isGameOver())
+            jassGame.advanceToEndOfNextTrick();
+        return measured;
+    }
+
+    /*
+     * Player measuring the processor time the underlying player takes to
+     * choose its cards, and remembering the last score
+     */
+    private static final class MeasuredPlayer implements Player {
+
+        private static final ThreadMXBean THREADS = ManagementFactory
+                .getThreadMXBean();
+
+        private final TeamId team;
+        private final Player underlyingPlayer;
+        private long cpuNanos;
+        private int cards;
+        private Score lastScore = Score.INITIAL;
+
+        MeasuredPlayer(TeamId team, Player underlyingPlayer) {
+            this.team = team;
+            this.underlyingPlayer = underlyingPlayer;
+        }
+
+        @Override
+        public Card cardToPlay(TurnState state, CardSet hand) {
+            long start = THREADS.getCurrentThreadCpuTime();
+            Card card = underlyingPlayer.cardToPlay(state, hand);
+            cpuNanos += THREADS.getCurrentThreadCpuTime() - start;
+            cards++;
+            return card;
+        }
+
+        @Override
+        public void setPlayers(PlayerId ownId,
+                Map<PlayerId, String> playerNames) {
+            underlyingPlayer.setPlayers(ownId, playerNames);
+        }
+
+        @Override
+        public void updateHand(CardSet newHand) {
+            underlyingPlayer.updateHand(newHand);
+        }
+
+        @Override
+        public void setTrump(Color trump) {
+            underlyingPlayer.setTrump(trump);
+        }
+
+        @Override
+        public void updateTrick(Trick newTrick) {
+            underlyingPlayer.updateTrick(newTrick);
+        }
+
+        @Override
+        public void updateScore(Score score) {
+            lastScore = score;
+            underlyingPlayer.updateScore(score);
+        }
+
+        @Override
+        public void setWinningTeam(TeamId winningTeam) {
+            underlyingPlayer.setWinningTeam(winningTeam);
+        }
+    }
+}
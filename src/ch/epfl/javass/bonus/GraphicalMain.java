@@ -347,7 +347,10 @@ public final class GraphicalMain extends Application {
             if (buttonS[i].isSelected()) {
                 MctsPlayer mctsPlayer = new MctsPlayer(PlayerId.ALL.get(i),
                         playerSeeds[i], iterations);
-                players.put(id, new PacedPlayer(mctsPlayer, 2));
+                // searching until the minimum time has elapsed depends on
+                // the clock, so a seeded game keeps the fixed iterations
+                players.put(id, new PacedPlayer(mctsPlayer, 2,
+                        seedField.getText().isEmpty()));
             }
 
             if (buttonR[i].isSelected()) {
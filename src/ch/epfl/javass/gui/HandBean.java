@@ -5,6 +5,7 @@ import java.util.Collections;
 import ch.epfl.javass.jass.Card;
 import ch.epfl.javass.jass.CardSet;
 import ch.epfl.javass.jass.Jass;
+import ch.epfl.javass.jass.PackedCardSet;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableSet;
@@ -55,8 +56,11 @@ public final class HandBean {
      */
     public void setHand(CardSet newHand) {
         if (newHand.size() == Jass.HAND_SIZE) {
-            for (int i = 0; i < Jass.HAND_SIZE; i++)
-                hand.set(i, newHand.get(i));
+            long cards = newHand.packed();
+            for (int i = 0; i < Jass.HAND_SIZE; i++) {
+                hand.set(i, Card.ofPacked(PackedCardSet.lowestCard(cards)));
+                cards = PackedCardSet.withoutLowestCard(cards);
+            }
         } else {
             for (int i = 0; i < Jass.HAND_SIZE; i++) {
                 if (hand.get(i) != null && !newHand.contains(hand.get(i)))
@@ -83,8 +87,7 @@ public final class HandBean {
      */
     public void setPlayableCards(CardSet newPlayableCards) {
         playableCards.clear();
-        for (int i = 0; i < newPlayableCards.size(); i++)
-            playableCards.add(newPlayableCards.get(i));
+        newPlayableCards.forEach(playableCards::add);
     }
 
 }
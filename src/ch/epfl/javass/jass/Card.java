@@ -18,6 +18,12 @@ public final class Card {
      */
     private final int packedRepresentation;
 
+    /*
+     * The 36 cards, at the index of their packed version, so that a card is
+     * never created twice
+     */
+    private static final Card[] CARDS = computeCards();
+
     /**
      * Private constructor, 2 static methods are instead used to create
      * instances of Card
@@ -152,11 +158,12 @@ public final class Card {
      * @return (Card): The card with color c and rank r
      */
     public static Card of(Color c, Rank r) {
-        return new Card(PackedCard.pack(c, r));
+        return CARDS[PackedCard.pack(c, r)];
     }
 
     /**
-     * Returns the card of which packed is the packed version
+     * Returns the card of which packed is the packed version, which is always
+     * the same instance for a given card
      * 
      * @param packed
      *            (int): The packed version of the card to return
@@ -165,7 +172,7 @@ public final class Card {
     public static Card ofPacked(int packed) {
         // Checks if packed is a valid packed card
         Preconditions.checkArgument(PackedCard.isValid(packed));
-        return new Card(packed);
+        return CARDS[packed];
     }
 
     /**
@@ -247,4 +254,20 @@ public final class Card {
         return PackedCard.toString(packedRepresentation);
     }
 
+    /*
+     * @return (Card[]): the array of all the cards, indexed by their packed
+     * version, holding null at the other indexes
+     */
+    private static Card[] computeCards() {
+        // the last card has the greatest packed version
+        Card[] cards = new Card[PackedCard.pack(Color.CLUB, Rank.ACE) + 1];
+        for (Color color : Color.ALL) {
+            for (Rank rank : Rank.ALL) {
+                int packed = PackedCard.pack(color, rank);
+                cards[packed] = new Card(packed);
+            }
+        }
+        return cards;
+    }
+
 }
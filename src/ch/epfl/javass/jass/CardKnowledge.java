@@ -0,0 +1,152 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+/**
+ * What a player knows of the hands of all the players during a turn, given as
+ * the packed set of the cards each player may still hold. It is deduced from
+ * the player's own hand, from the cards played, and from the colors the other
+ * players failed to follow, in which they are then known to have no card left
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class CardKnowledge {
+
+    /*
+     * Id of the player to whom the knowledge belongs
+     */
+    private final PlayerId ownId;
+    /*
+     * Packed set of the cards each player may still hold, indexed by the
+     * ordinal of its id
+     */
+    private final long[] possibleCards = new long[PlayerId.COUNT];
+    /*
+     * Packed set of the cards which have not been played yet
+     */
+    private long unplayedCards;
+    /*
+     * Index of the last trick seen, and number of its cards already taken
+     * into account
+     */
+    private int trickIndex;
+    private int cardsSeen;
+
+    /**
+     * Creates the knowledge of a player, who knows nothing yet
+     *
+     * @param ownId
+     *            (PlayerId): Id of the player to whom the knowledge belongs
+     */
+    CardKnowledge(PlayerId ownId) {
+        this.ownId = ownId;
+        newTurn();
+    }
+
+    /**
+     * Forgets everything but the hand of the player, at the start of a turn
+     */
+    void newTurn() {
+        long hand = possibleCards[ownId.ordinal()];
+        for (int i = 0; i < PlayerId.COUNT; i++)
+            possibleCards[i] = PackedCardSet.difference(PackedCardSet.ALL_CARDS,
+                    hand);
+        possibleCards[ownId.ordinal()] = hand;
+        unplayedCards = PackedCardSet.ALL_CARDS;
+        trickIndex = -1;
+        cardsSeen = 0;
+    }
+
+    /**
+     * Updates the hand of the player
+     *
+     * @param pkHand
+     *            (long): packed hand of the player
+     */
+    void updateHand(long pkHand) {
+        for (int i = 0; i < PlayerId.COUNT; i++)
+            possibleCards[i] = PackedCardSet.difference(possibleCards[i],
+                    pkHand);
+        possibleCards[ownId.ordinal()] = pkHand;
+    }
+
+    /**
+     * Takes into account the cards of the given trick which have not been
+     * seen yet
+     *
+     * @param pkTrick
+     *            (int): packed trick of the current state of the turn
+     */
+    void updateTrick(int pkTrick) {
+        if (PackedTrick.index(pkTrick) != trickIndex) {
+            trickIndex = PackedTrick.index(pkTrick);
+            cardsSeen = 0;
+        }
+
+        for (; cardsSeen < PackedTrick.size(pkTrick); cardsSeen++) {
+            int card = PackedTrick.card(pkTrick, cardsSeen);
+            int player = PackedTrick.player(pkTrick, cardsSeen).ordinal();
+            unplayedCards = PackedCardSet.remove(unplayedCards, card);
+            for (int i = 0; i < PlayerId.COUNT; i++)
+                possibleCards[i] = PackedCardSet.remove(possibleCards[i],
+                        card);
+            if (cardsSeen > 0 && player != ownId.ordinal())
+                possibleCards[player] = PackedCardSet.difference(
+                        possibleCards[player], impossibleCards(pkTrick, card));
+        }
+    }
+
+    /**
+     * @return (long): packed set of the cards which have not been played yet
+     */
+    long unplayedCards() {
+        return unplayedCards;
+    }
+
+    /**
+     * @param player
+     *            (PlayerId): a player
+     * @return (long): packed set of the cards the player may still hold
+     */
+    long possibleCards(PlayerId player) {
+        return possibleCards[player.ordinal()];
+    }
+
+    /**
+     * @param player
+     *            (PlayerId): a player
+     * @return (long): packed set of the cards the player is known to hold, as
+     *         no other player may hold them
+     */
+    long knownCards(PlayerId player) {
+        long known = possibleCards[player.ordinal()];
+        for (int i = 0; i < PlayerId.COUNT; i++) {
+            if (i != player.ordinal())
+                known = PackedCardSet.difference(known, possibleCards[i]);
+        }
+        return known;
+    }
+
+    /*
+     * @return (long): packed set of the cards a player cannot hold any more,
+     * as it played the given card in the given trick instead of following its
+     * base color
+     */
+    private static long impossibleCards(int pkTrick, int pkCard) {
+        Color trump = PackedTrick.trump(pkTrick);
+        Color base = PackedTrick.baseColor(pkTrick);
+        Color color = PackedCard.color(pkCard);
+
+        // one may always play a trump, and need not play the jack of trump
+        if (color == base || (color == trump && base != trump))
+            return PackedCardSet.EMPTY;
+        long impossible = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS,
+                base);
+        if (base == trump)
+            impossible = PackedCardSet.remove(impossible,
+                    PackedCard.pack(trump, Rank.JACK));
+        return impossible;
+    }
+}
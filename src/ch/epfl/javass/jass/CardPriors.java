@@ -0,0 +1,113 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * Non instantiable class with static methods giving the prior probability
+ * that a card is the best one to play in a state of a turn, before any turn
+ * has been simulated from it. The priors come from a cheap heuristic: taking
+ * the trick, the more so when it holds many points, giving points to the
+ * partner rather than to the other team, and leading with strong cards
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class CardPriors {
+
+    /*
+     * Smallest strength of a card, so that every card keeps some chance of
+     * being tried
+     */
+    private static final double MIN_STRENGTH = 0.1;
+
+    /**
+     * Private constructor because CardPriors is non instantiable
+     */
+    private CardPriors() {
+    }
+
+    /**
+     * Gives the prior of a card, which is its strength divided by the sum of
+     * the strengths of all the cards which can be played
+     *
+     * @param pkTrick
+     *            (int): packed trick, which must not be full
+     * @param pkPlayableCards
+     *            (long): packed set of the cards which can be played
+     * @param pkCard
+     *            (int): packed card, among those which can be played
+     * @return (double): prior of the card, between 0 and 1
+     */
+    static double prior(int pkTrick, long pkPlayableCards, int pkCard) {
+        double total = 0;
+        for (long cards = pkPlayableCards; cards != 0; cards &= cards - 1)
+            total += strength(pkTrick, Long.numberOfTrailingZeros(cards));
+        return strength(pkTrick, pkCard) / total;
+    }
+
+    /**
+     * Chooses the strongest of the given cards
+     *
+     * @param pkTrick
+     *            (int): packed trick, which must not be full
+     * @param pkCards
+     *            (long): packed set of cards which can be played, not empty
+     * @return (int): the packed card of the set with the greatest strength,
+     *         the first one in case of a tie
+     */
+    static int strongestCard(int pkTrick, long pkCards) {
+        int strongest = PackedCard.INVALID;
+        double maxStrength = 0;
+        for (long cards = pkCards; cards != 0; cards &= cards - 1) {
+            int card = Long.numberOfTrailingZeros(cards);
+            double strength = strength(pkTrick, card);
+            if (strongest == PackedCard.INVALID || strength > maxStrength) {
+                strongest = card;
+                maxStrength = strength;
+            }
+        }
+        return strongest;
+    }
+
+    /*
+     * @return (double): strength of the given card played in the given trick,
+     * which must not be full, from the point of view of its player
+     */
+    private static double strength(int pkTrick, int pkCard) {
+        Color trump = PackedTrick.trump(pkTrick);
+        Card.Rank rank = PackedCard.rank(pkCard);
+        boolean isTrump = PackedCard.color(pkCard) == trump;
+        int size = PackedTrick.size(pkTrick);
+
+        // a strong card is a good lead
+        if (size == 0)
+            return 1 + (isTrump ? rank.trumpOrdinal() : rank.ordinal())
+                    / (double) Card.Rank.COUNT;
+
+        int best = 0;
+        int trickPoints = 0;
+        for (int i = 0; i < size; i++) {
+            int card = PackedTrick.card(pkTrick, i);
+            trickPoints += PackedCard.points(trump, card);
+            if (i > 0 && PackedCard.isBetter(trump, card,
+                    PackedTrick.card(pkTrick, best)))
+                best = i;
+        }
+        boolean partnerWins = PackedTrick.player(pkTrick, best)
+                .team() == PackedTrick.player(pkTrick, size).team();
+        int points = PackedCard.points(trump, pkCard);
+
+        double strength = 1;
+        if (isTrump)
+            strength += rank.trumpOrdinal() / (2.0 * Card.Rank.COUNT);
+        if (!partnerWins && PackedCard.isBetter(trump, pkCard,
+                PackedTrick.card(pkTrick, best)))
+            // the more points in the trick, the more it is worth taking it
+            strength += 2 + (trickPoints + points) / 20.0;
+        else if (partnerWins)
+            strength += points / 11.0;
+        else
+            strength -= points / 22.0;
+        return Math.max(MIN_STRENGTH, strength);
+    }
+}
@@ -1,6 +1,9 @@
 package ch.epfl.javass.jass;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 import ch.epfl.javass.Preconditions;
 
@@ -49,11 +52,12 @@ public final class CardSet {
         for (Card card : cards) {
             packedCardSet = PackedCardSet.add(packedCardSet, card.packed());
         }
-        return new CardSet(packedCardSet);
+        return ofPacked(packedCardSet);
     }
 
     /**
-     * Constructs a new CardSet from a packed card set
+     * Constructs a new CardSet from a packed card set, EMPTY and ALL_CARDS
+     * being returned instead of copies of them
      * 
      * @param packed
      *            (long): the packed version of the card set
@@ -61,6 +65,10 @@ public final class CardSet {
      */
     public static CardSet ofPacked(long packed) {
         Preconditions.checkArgument(PackedCardSet.isValid(packed));
+        if (packed == PackedCardSet.EMPTY)
+            return EMPTY;
+        if (packed == PackedCardSet.ALL_CARDS)
+            return ALL_CARDS;
         return new CardSet(packed);
     }
 
@@ -95,6 +103,26 @@ public final class CardSet {
         return Card.ofPacked(PackedCardSet.get(packedRepresentation, index));
     }
 
+    /**
+     * Applies an action to each card of the set, in the order of get, without
+     * going through the indexes of the cards
+     * 
+     * @param action
+     *            (Consumer<Card>): the action applied to each card
+     */
+    public void forEach(Consumer<Card> action) {
+        PackedCardSet.forEach(packedRepresentation,
+                c -> action.accept(Card.ofPacked(c)));
+    }
+
+    /**
+     * @return (IntStream): the packed cards of the set, in the order of get
+     */
+    public IntStream packedStream() {
+        return StreamSupport.intStream(
+                PackedCardSet.spliterator(packedRepresentation), false);
+    }
+
     /**
      * @param card
      *            (Card): the card to add
@@ -0,0 +1,170 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * Non instantiable class with static methods for dealing randomly the cards
+ * which are hidden to a player, given the packed state of the turn, so that
+ * every other player gets as many cards as it still has to play, among the
+ * cards it may hold
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class DealSampler {
+
+    /*
+     * Number of random deals tried before ignoring the cards the players may
+     * hold
+     */
+    private static final int ATTEMPTS = 16;
+
+    /**
+     * Private constructor because DealSampler is non instantiable
+     */
+    private DealSampler() {
+    }
+
+    /**
+     * Deals the unplayed cards which are not in the known hand to the other
+     * players, respecting the number of cards each player still has to play
+     * in the turn, and if possible the cards it may hold. The cards only one
+     * player may hold are dealt to it, then each player gets random cards
+     * among those it may hold, starting with the player with the least
+     * choice. If no such deal is found after a few attempts, the cards each
+     * player may hold are ignored
+     *
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards
+     * @param pkTrick
+     *            (int): packed trick of the state, which may be full but not
+     *            INVALID
+     * @param ownId
+     *            (PlayerId): id of the player whose hand is known
+     * @param possibleCards
+     *            (long[]): packed set of the cards each player may hold,
+     *            indexed by the ordinal of its id, that of the player whose
+     *            hand is known being its hand
+     * @param rng
+     *            (SplittableRandom): RNG used to deal the cards
+     * @param hands
+     *            (long[]): array in which the packed hand of each player is
+     *            written, indexed by the ordinal of its id
+     */
+    static void sample(long pkUnplayedCards, int pkTrick, PlayerId ownId,
+            long[] possibleCards, SplittableRandom rng, long[] hands) {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            if (trySample(pkUnplayedCards, pkTrick, ownId, possibleCards, rng,
+                    hands))
+                return;
+        }
+
+        // deals the hidden cards to the players with room for them
+        int own = ownId.ordinal();
+        long hidden = PackedCardSet.difference(pkUnplayedCards,
+                possibleCards[own]);
+        for (int i = 0; i < PlayerId.COUNT; i++) {
+            if (i == own) {
+                hands[i] = PackedCardSet.intersection(pkUnplayedCards,
+                        possibleCards[own]);
+                continue;
+            }
+            hands[i] = PackedCardSet.EMPTY;
+            hidden = deal(hidden, hidden, cardsLeft(pkTrick, i), i, rng,
+                    hands);
+        }
+    }
+
+    /*
+     * Tries to deal the hidden cards so that every player only gets cards it
+     * may hold
+     *
+     * @return (boolean): whether the deal written in hands is valid
+     */
+    private static boolean trySample(long pkUnplayedCards, int pkTrick,
+            PlayerId ownId, long[] possibleCards, SplittableRandom rng,
+            long[] hands) {
+        int own = ownId.ordinal();
+        long hidden = PackedCardSet.difference(pkUnplayedCards,
+                possibleCards[own]);
+        hands[own] = PackedCardSet.intersection(pkUnplayedCards,
+                possibleCards[own]);
+
+        // the cards only one player may hold are its own
+        for (int i = 0; i < PlayerId.COUNT; i++) {
+            if (i == own)
+                continue;
+            long known = PackedCardSet.intersection(hidden, possibleCards[i]);
+            for (int j = 0; j < PlayerId.COUNT; j++) {
+                if (j != i && j != own)
+                    known = PackedCardSet.difference(known, possibleCards[j]);
+            }
+            if (PackedCardSet.size(known) > cardsLeft(pkTrick, i))
+                return false;
+            hands[i] = known;
+            hidden = PackedCardSet.difference(hidden, known);
+        }
+
+        // the player with the least choice among the rest is dealt first
+        int dealt = 1 << own;
+        for (int k = 1; k < PlayerId.COUNT; k++) {
+            int next = -1;
+            int minChoice = Integer.MAX_VALUE;
+            for (int i = 0; i < PlayerId.COUNT; i++) {
+                if ((dealt & (1 << i)) != 0)
+                    continue;
+                int choice = PackedCardSet.size(PackedCardSet
+                        .intersection(hidden, possibleCards[i]))
+                        - cardsLeft(pkTrick, i)
+                        + PackedCardSet.size(hands[i]);
+                if (choice < minChoice) {
+                    minChoice = choice;
+                    next = i;
+                }
+            }
+            if (minChoice < 0)
+                return false;
+
+            dealt |= 1 << next;
+            hidden = deal(hidden,
+                    PackedCardSet.intersection(hidden, possibleCards[next]),
+                    cardsLeft(pkTrick, next) - PackedCardSet.size(hands[next]),
+                    next, rng, hands);
+        }
+        return true;
+    }
+
+    /*
+     * Deals the given number of random cards of the candidates to the given
+     * player
+     *
+     * @return (long): the hidden cards which have not been dealt yet
+     */
+    private static long deal(long hidden, long candidates, int count,
+            int player, SplittableRandom rng, long[] hands) {
+        for (int j = 0; j < count; j++) {
+            int card = PackedCardSet.random(candidates, rng);
+            candidates = PackedCardSet.remove(candidates, card);
+            hidden = PackedCardSet.remove(hidden, card);
+            hands[player] = PackedCardSet.add(hands[player], card);
+        }
+        return hidden;
+    }
+
+    /*
+     * @return (int): number of cards the player of the given ordinal still
+     * has to play in the turn
+     */
+    private static int cardsLeft(int pkTrick, int player) {
+        // once the trick is full, every player has played in it
+        int tricksLeft = Jass.TRICKS_PER_TURN - PackedTrick.index(pkTrick);
+        if (PackedTrick.isFull(pkTrick))
+            return tricksLeft - 1;
+
+        // the players who already played in the trick hold one card less
+        int position = (player - PackedTrick.player(pkTrick, 0).ordinal()
+                + PlayerId.COUNT) % PlayerId.COUNT;
+        return position < PackedTrick.size(pkTrick) ? tricksLeft - 1
+                : tricksLeft;
+    }
+}
@@ -0,0 +1,364 @@
+package ch.epfl.javass.jass;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * Finishes turns like PackedRollout, except that once few enough cards remain
+ * to be played, the hidden cards are dealt at random and the end of the turn
+ * is solved exactly for that deal, each team playing the cards maximizing the
+ * difference between its points and those of the other team. The solver is an
+ * alpha-beta search trying first the cards taking the trick, with a small
+ * cache of the positions at the start of each trick. It reuses its arrays from
+ * one turn to the next, so an instance must only be used by one worker at a
+ * time
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class EndgameSolver {
+
+    /*
+     * Number of entries of the cache, a power of 2
+     */
+    private static final int CACHE_SIZE = 1 << 12;
+    /*
+     * Kinds of values stored in the cache
+     */
+    private static final byte EXACT = 0;
+    private static final byte LOWER_BOUND = 1;
+    private static final byte UPPER_BOUND = 2;
+
+    /*
+     * Maximal number of unplayed cards for which the end of the turn is solved
+     */
+    private final int cards;
+    /*
+     * Hand of each player in the deal being solved, indexed by the ordinal of
+     * its id
+     */
+    private final long[] hands = new long[PlayerId.COUNT];
+    /*
+     * Cards to try at each depth of the search, in order
+     */
+    private final int[][] moves;
+    private final int[] moveKeys = new int[Jass.HAND_SIZE];
+
+    /*
+     * For each entry of the cache: the position stored in it, given by its
+     * unplayed cards and by its first player and which teams already won
+     * tricks, the solve it belongs to, the difference between the final score
+     * and the score of the position, and the kind of value
+     */
+    private final long[] cacheUnplayedCards = new long[CACHE_SIZE];
+    private final int[] cacheInfos = new int[CACHE_SIZE];
+    private final int[] cacheStamps = new int[CACHE_SIZE];
+    private final long[] cacheScores = new long[CACHE_SIZE];
+    private final byte[] cacheBounds = new byte[CACHE_SIZE];
+    /*
+     * Number of the current solve, the entries of the previous ones being
+     * ignored as they hold positions of other deals
+     */
+    private int stamp;
+
+    /**
+     * Creates a solver
+     *
+     * @param cards
+     *            (int): maximal number of unplayed cards for which the end of
+     *            the turn is solved
+     */
+    EndgameSolver(int cards) {
+        this.cards = cards;
+        this.moves = new int[cards][Jass.HAND_SIZE];
+    }
+
+    /**
+     * @return (int): maximal number of unplayed cards for which the end of
+     *         the turn is solved
+     */
+    int cards() {
+        return cards;
+    }
+
+    /**
+     * Finishes a turn with the given policy until no more unplayed cards than
+     * the number given to the constructor remain, then optimally for a random
+     * deal of the hidden cards
+     *
+     * @param pkScore
+     *            (long): packed score of the state from which we finish the
+     *            turn
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards of that state
+     * @param pkTrick
+     *            (int): packed trick of that state, which may be full, or
+     *            INVALID if the turn is already over
+     * @param ownId
+     *            (PlayerId): id of the player whose hand is known
+     * @param possibleCards
+     *            (long[]): packed set of the cards each player may hold,
+     *            indexed by the ordinal of its id, that of the player whose
+     *            hand is known being its hand
+     * @param policy
+     *            (RolloutPolicy): policy choosing the cards until the end of
+     *            the turn is solved
+     * @param rng
+     *            (SplittableRandom): RNG used to choose the cards and to deal
+     *            the hidden ones
+     * @param played
+     *            (long[]): array to which the packed cards played by each
+     *            player are added, indexed by the ordinal of its id, null if
+     *            they are not needed
+     * @return (long): final packed score of the finished turn
+     */
+    long finishTurn(long pkScore, long pkUnplayedCards, int pkTrick,
+            PlayerId ownId, long[] possibleCards, RolloutPolicy policy,
+            SplittableRandom rng, long[] played) {
+        while (pkTrick != PackedTrick.INVALID
+                && PackedCardSet.size(pkUnplayedCards) > cards) {
+            if (PackedTrick.isFull(pkTrick)) {
+                pkScore = PackedScore.withAdditionalTrick(pkScore,
+                        PackedTrick.winningPlayer(pkTrick).team(),
+                        PackedTrick.points(pkTrick));
+                pkTrick = PackedTrick.nextEmpty(pkTrick);
+                continue;
+            }
+
+            int card = PackedRollout.rolloutCard(pkUnplayedCards, pkTrick,
+                    ownId, possibleCards, policy, rng);
+            if (played != null) {
+                int player = PackedTrick
+                        .player(pkTrick, PackedTrick.size(pkTrick)).ordinal();
+                played[player] = PackedCardSet.add(played[player], card);
+            }
+            pkUnplayedCards = PackedCardSet.remove(pkUnplayedCards, card);
+            pkTrick = PackedTrick.withAddedCard(pkTrick, card);
+        }
+        if (pkTrick == PackedTrick.INVALID)
+            return pkScore;
+
+        DealSampler.sample(pkUnplayedCards, pkTrick, ownId, possibleCards,
+                rng, hands);
+        // every card of the deal is played by its holder
+        if (played != null) {
+            for (int i = 0; i < PlayerId.COUNT; i++)
+                played[i] = PackedCardSet.union(played[i], hands[i]);
+        }
+        return solve(pkScore, pkTrick);
+    }
+
+    /**
+     * Finishes a turn whose hands are all known, with the given policy until
+     * no more unplayed cards than the number given to the constructor remain,
+     * then optimally
+     *
+     * @param pkScore
+     *            (long): packed score of the state from which we finish the
+     *            turn
+     * @param pkTrick
+     *            (int): packed trick of that state, which may be full, or
+     *            INVALID if the turn is already over
+     * @param deal
+     *            (long[]): packed hand of each player, indexed by the ordinal
+     *            of its id, from which the cards played by the policy are
+     *            removed
+     * @param policy
+     *            (RolloutPolicy): policy choosing the cards until the end of
+     *            the turn is solved
+     * @param rng
+     *            (SplittableRandom): RNG used to choose the cards
+     * @return (long): final packed score of the finished turn
+     */
+    long finishTurn(long pkScore, int pkTrick, long[] deal,
+            RolloutPolicy policy, SplittableRandom rng) {
+        int unplayed = 0;
+        for (long hand : deal)
+            unplayed += PackedCardSet.size(hand);
+
+        while (pkTrick != PackedTrick.INVALID && unplayed > cards) {
+            if (PackedTrick.isFull(pkTrick)) {
+                pkScore = PackedScore.withAdditionalTrick(pkScore,
+                        PackedTrick.winningPlayer(pkTrick).team(),
+                        PackedTrick.points(pkTrick));
+                pkTrick = PackedTrick.nextEmpty(pkTrick);
+                continue;
+            }
+
+            pkTrick = PackedTrick.withAddedCard(pkTrick,
+                    PackedRollout.rolloutCard(pkTrick, deal, policy, rng));
+            unplayed--;
+        }
+        if (pkTrick == PackedTrick.INVALID)
+            return pkScore;
+
+        System.arraycopy(deal, 0, hands, 0, PlayerId.COUNT);
+        return solve(pkScore, pkTrick);
+    }
+
+    /*
+     * Solves the end of the turn for the deal in hands
+     */
+    private long solve(long pkScore, int pkTrick) {
+        // the entries of the previous solves become invalid
+        if (++stamp == 0) {
+            Arrays.fill(cacheStamps, 0);
+            stamp = 1;
+        }
+        return search(pkScore, pkTrick, 0, Integer.MIN_VALUE,
+                Integer.MAX_VALUE);
+    }
+
+    /*
+     * Alpha-beta search of the given state, the first team maximizing the
+     * difference between its turn points and those of the second team, and
+     * the second one minimizing it
+     *
+     * @param depth (int): number of cards played since the start of the solve
+     *
+     * @param alpha (int): difference the first team is already assured of
+     *
+     * @param beta (int): difference the second team is already assured of
+     *
+     * @return (long): final packed score of the best line found, whose
+     * difference is exact if it lies strictly between alpha and beta, and
+     * otherwise a bound on the exact one on the same side
+     */
+    private long search(long pkScore, int pkTrick, int depth, int alpha,
+            int beta) {
+        if (PackedTrick.isFull(pkTrick)) {
+            pkScore = PackedScore.withAdditionalTrick(pkScore,
+                    PackedTrick.winningPlayer(pkTrick).team(),
+                    PackedTrick.points(pkTrick));
+            pkTrick = PackedTrick.nextEmpty(pkTrick);
+            if (pkTrick == PackedTrick.INVALID)
+                return pkScore;
+        }
+
+        // the positions at the start of a trick are looked up in the cache
+        int entry = -1;
+        long unplayedCards = 0;
+        int info = 0;
+        int initialAlpha = alpha;
+        int initialBeta = beta;
+        if (PackedTrick.isEmpty(pkTrick)) {
+            for (long hand : hands)
+                unplayedCards |= hand;
+            // the match bonus depends on which teams already won tricks
+            info = PackedTrick.player(pkTrick, 0).ordinal();
+            if (PackedScore.turnTricks(pkScore, TeamId.TEAM_1) > 0)
+                info |= 1 << 2;
+            if (PackedScore.turnTricks(pkScore, TeamId.TEAM_2) > 0)
+                info |= 1 << 3;
+            entry = cacheEntry(unplayedCards, info);
+
+            if (cacheStamps[entry] == stamp
+                    && cacheUnplayedCards[entry] == unplayedCards
+                    && cacheInfos[entry] == info) {
+                long finalScore = pkScore + cacheScores[entry];
+                int value = difference(finalScore);
+                byte bound = cacheBounds[entry];
+                if (bound == EXACT || (bound == LOWER_BOUND && value >= beta)
+                        || (bound == UPPER_BOUND && value <= alpha))
+                    return finalScore;
+                if (bound == LOWER_BOUND)
+                    alpha = Math.max(alpha, value);
+                else
+                    beta = Math.min(beta, value);
+            }
+        }
+
+        PlayerId player = PackedTrick.player(pkTrick,
+                PackedTrick.size(pkTrick));
+        boolean maximizing = player.team() == TeamId.TEAM_1;
+        int[] cardsToTry = moves[depth];
+        int count = orderCards(pkTrick, player, cardsToTry);
+
+        long bestScore = 0;
+        int bestValue = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int i = 0; i < count && alpha < beta; i++) {
+            int card = cardsToTry[i];
+            hands[player.ordinal()] = PackedCardSet
+                    .remove(hands[player.ordinal()], card);
+            long finalScore = search(pkScore,
+                    PackedTrick.withAddedCard(pkTrick, card), depth + 1, alpha,
+                    beta);
+            hands[player.ordinal()] = PackedCardSet
+                    .add(hands[player.ordinal()], card);
+
+            int value = difference(finalScore);
+            if (maximizing ? value > bestValue : value < bestValue) {
+                bestValue = value;
+                bestScore = finalScore;
+            }
+            if (maximizing)
+                alpha = Math.max(alpha, value);
+            else
+                beta = Math.min(beta, value);
+        }
+
+        if (entry >= 0) {
+            cacheStamps[entry] = stamp;
+            cacheUnplayedCards[entry] = unplayedCards;
+            cacheInfos[entry] = info;
+            // the points and tricks of the score only grow, so the difference
+            // of the packed scores holds what the end of the turn adds
+            cacheScores[entry] = bestScore - pkScore;
+            cacheBounds[entry] = bestValue <= initialAlpha ? UPPER_BOUND
+                    : bestValue >= initialBeta ? LOWER_BOUND : EXACT;
+        }
+        return bestScore;
+    }
+
+    /*
+     * Writes the cards the given player can play in the given array, the
+     * cards taking the trick first, from the most to the least valuable, then
+     * the others, from the least to the most valuable
+     *
+     * @return (int): the number of cards written
+     */
+    private int orderCards(int pkTrick, PlayerId player, int[] cardsToTry) {
+        long playableCards = PackedTrick.playableCards(pkTrick,
+                hands[player.ordinal()]);
+        Color trump = PackedTrick.trump(pkTrick);
+
+        int count = 0;
+        for (long cards = playableCards; cards != 0; cards &= cards - 1) {
+            int card = Long.numberOfTrailingZeros(cards);
+            int points = PackedCard.points(trump, card);
+            boolean takes = PackedTrick.winningPlayer(
+                    PackedTrick.withAddedCard(pkTrick, card)) == player;
+            int key = takes ? points + 1 : -points;
+
+            // insertion in decreasing order of keys
+            int i = count++;
+            while (i > 0 && moveKeys[i - 1] < key) {
+                moveKeys[i] = moveKeys[i - 1];
+                cardsToTry[i] = cardsToTry[i - 1];
+                i--;
+            }
+            moveKeys[i] = key;
+            cardsToTry[i] = card;
+        }
+        return count;
+    }
+
+    /*
+     * @return (int): entry of the cache in which the given position is stored
+     */
+    private static int cacheEntry(long unplayedCards, int info) {
+        long z = (unplayedCards ^ info) * 0x9E3779B97F4A7C15L;
+        return (int) (z >>> (Long.SIZE - Integer.numberOfTrailingZeros(
+                CACHE_SIZE)));
+    }
+
+    /*
+     * @return (int): turn points of the first team minus those of the second
+     */
+    private static int difference(long pkScore) {
+        return PackedScore.turnPoints(pkScore, TeamId.TEAM_1)
+                - PackedScore.turnPoints(pkScore, TeamId.TEAM_2);
+    }
+}
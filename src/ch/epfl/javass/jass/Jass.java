@@ -10,6 +10,8 @@ public interface Jass {
     public static final int HAND_SIZE = 9;
     /** Number of tricks in a turn */
     public static final int TRICKS_PER_TURN = 9;
+    /** Points of all the cards of a turn, without the additional points */
+    public static final int CARD_POINTS = 152;
     /** Points to win */
     public static final int WINNING_POINTS = 1000;
     /** Points obtained if a team wins all the tricks of a turn */
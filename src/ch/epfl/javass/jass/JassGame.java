@@ -110,15 +110,16 @@ public final class JassGame {
             if (turnState == null || turnState.isTerminal())
                 beginTurn();
 
-            // Updates each player with the current scores
+            // Updates each player with the current scores, the same Score
+            // being given to all of them
+            Score score = turnState.score();
             for (PlayerId id : ALL)
-                players.get(id).updateScore(turnState.score());
+                players.get(id).updateScore(score);
 
             // Checks if a team has won yet
             TeamId winningTeam;
-            if (turnState.score()
-                    .totalPoints(winningTeam = TEAM_1) >= Jass.WINNING_POINTS
-                    || turnState.score().totalPoints(
+            if (score.totalPoints(winningTeam = TEAM_1) >= Jass.WINNING_POINTS
+                    || score.totalPoints(
                             winningTeam = TEAM_2) >= Jass.WINNING_POINTS) {
                 gameOver = true;
 
@@ -128,13 +129,11 @@ public final class JassGame {
                 return;
             }
 
-            for (PlayerId id : ALL)
-                players.get(id).updateTrick(turnState.trick());
+            updateTricks();
             // Makes each player play
             for (int i = 0; i < PlayerId.COUNT; i++) {
                 play(turnState.nextPlayer());
-                for (PlayerId id : ALL)
-                    players.get(id).updateTrick(turnState.trick());
+                updateTricks();
             }
         }
     }
@@ -143,11 +142,9 @@ public final class JassGame {
      * Shuffles the deck and deals 9 cards to each player
      */
     private void shuffleAndDeal() {
-        List<Card> deck = new ArrayList<>();
+        List<Card> deck = new ArrayList<>(CardSet.ALL_CARDS.size());
         // Adds all cards to the deck
-        for (int i = 0; i < CardSet.ALL_CARDS.size(); i++) {
-            deck.add(CardSet.ALL_CARDS.get(i));
-        }
+        CardSet.ALL_CARDS.forEach(deck::add);
 
         // Shuffles the deck
         Collections.shuffle(deck, shuffleRng);
@@ -203,6 +200,16 @@ public final class JassGame {
         }
     }
 
+    /*
+     * Updates each player with the current trick, the same Trick being given
+     * to all of them
+     */
+    private void updateTricks() {
+        Trick trick = turnState.trick();
+        for (PlayerId id : ALL)
+            players.get(id).updateTrick(trick);
+    }
+
     /*
      * Makes a player play a card
      * 
@@ -0,0 +1,395 @@
+package ch.epfl.javass.jass;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * A linear function estimating, in a state of a turn, the share of the points
+ * left in the turn which the team of a player will win, from features of the
+ * packed state that player knows: the unplayed cards of each color, its
+ * trumps and points, the trick in progress and the tricks already won.
+ * MctsPlayer can use it to stop its simulated turns early and estimate their
+ * end instead of playing it.
+ * <p>
+ * The weights are fitted by least squares on turns played by a rollout
+ * policy, and saved in a text file holding one weight per line, in the order
+ * of the features, the lines starting with # being ignored
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+public final class LinearValueFunction {
+
+    /**
+     * Number of features, and thus of weights, the first one being a
+     * constant
+     */
+    public static final int FEATURES = 12;
+
+    /*
+     * Points of all the tricks of a turn
+     */
+    private static final int TURN_POINTS = Jass.CARD_POINTS
+            + Jass.LAST_TRICK_ADDITIONAL_POINTS;
+    /*
+     * Value added to the diagonal of the normal equations, so that they can be
+     * solved even if a feature never varies
+     */
+    private static final double RIDGE = 1e-6;
+
+    private final double[] weights;
+
+    /**
+     * Creates a function with the given weights
+     *
+     * @param weights
+     *            (double[]): weight of each feature, FEATURES in all
+     */
+    public LinearValueFunction(double[] weights) {
+        Preconditions.checkArgument(weights.length == FEATURES);
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Loads a function from a file of weights
+     *
+     * @param file
+     *            (Path): the file, holding one weight per line
+     * @return (LinearValueFunction): the function with the weights of the
+     *         file
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the file does not hold FEATURES numbers
+     */
+    public static LinearValueFunction load(Path file) {
+        List<Double> weights = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(file,
+                StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    weights.add(Double.parseDouble(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        Preconditions.checkArgument(weights.size() == FEATURES);
+        double[] w = new double[FEATURES];
+        for (int i = 0; i < FEATURES; i++)
+            w[i] = weights.get(i);
+        return new LinearValueFunction(w);
+    }
+
+    /**
+     * Saves the weights of this function in a file
+     *
+     * @param file
+     *            (Path): the file, which is replaced if it exists
+     * @throws UncheckedIOException
+     *             if the file cannot be written
+     */
+    public void save(Path file) {
+        try (BufferedWriter w = Files.newBufferedWriter(file,
+                StandardCharsets.UTF_8)) {
+            w.write("# poids de LinearValueFunction, un par caractéristique");
+            w.newLine();
+            for (double weight : weights) {
+                w.write(Double.toString(weight));
+                w.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fits the weights on random turns played by the given policy, all hands
+     * being known to the policy, each card played giving an example for each
+     * player, whether or not it is the one to play, of the share of the
+     * points left won by its team
+     *
+     * @param turns
+     *            (int): number of turns played
+     * @param policy
+     *            (RolloutPolicy): policy playing the turns
+     * @param seed
+     *            (long): seed of the RNG dealing the cards and choosing the
+     *            trumps
+     * @return (LinearValueFunction): the function minimizing the squared
+     *         error on the examples
+     */
+    public static LinearValueFunction train(int turns,
+            RolloutPolicy policy, long seed) {
+        Preconditions.checkArgument(turns > 0);
+        SplittableRandom rng = new SplittableRandom(seed);
+        double[][] normal = new double[FEATURES][FEATURES + 1];
+        double[] features = new double[FEATURES];
+        long[] hands = new long[PlayerId.COUNT];
+        // examples of the turn in progress: features, team and points left
+        double[][] examples = new double[Jass.TRICKS_PER_TURN
+                * PlayerId.COUNT * PlayerId.COUNT][FEATURES];
+        TeamId[] teams = new TeamId[examples.length];
+        int[] pointsLeft = new int[examples.length];
+        int[] teamPoints = new int[examples.length];
+
+        for (int t = 0; t < turns; t++) {
+            deal(rng, hands);
+            Color trump = Color.ALL.get(rng.nextInt(Color.COUNT));
+            PlayerId first = PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT));
+            long pkScore = PackedScore.INITIAL;
+            int pkTrick = PackedTrick.firstEmpty(trump, first);
+            int count = 0;
+
+            while (pkTrick != PackedTrick.INVALID) {
+                if (PackedTrick.isFull(pkTrick)) {
+                    pkScore = PackedScore.withAdditionalTrick(pkScore,
+                            PackedTrick.winningPlayer(pkTrick).team(),
+                            PackedTrick.points(pkTrick));
+                    pkTrick = PackedTrick.nextEmpty(pkTrick);
+                    continue;
+                }
+
+                long unplayed = 0;
+                for (long hand : hands)
+                    unplayed |= hand;
+                // MctsPlayer estimates the states for its own player, who
+                // may have already played in the trick
+                for (PlayerId player : PlayerId.ALL) {
+                    features(pkScore, unplayed, pkTrick, player,
+                            hands[player.ordinal()], examples[count]);
+                    teams[count] = player.team();
+                    pointsLeft[count] = pointsLeft(pkScore);
+                    teamPoints[count] = PackedScore.turnPoints(pkScore,
+                            player.team());
+                    count++;
+                }
+
+                pkTrick = PackedTrick.withAddedCard(pkTrick,
+                        PackedRollout.rolloutCard(pkTrick, hands, policy,
+                                rng));
+            }
+
+            // the share of each example is known once the turn is over, a
+            // match giving its team more than the points left
+            for (int i = 0; i < count; i++) {
+                double share = (double) (PackedScore.turnPoints(pkScore,
+                        teams[i]) - teamPoints[i]) / pointsLeft[i];
+                addExample(normal, examples[i], Math.min(1, share));
+            }
+        }
+        return new LinearValueFunction(solve(normal));
+    }
+
+    /**
+     * Estimates the final score of a turn from one of its states
+     *
+     * @param pkScore
+     *            (long): packed score of the state
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards of the state
+     * @param pkTrick
+     *            (int): packed trick of the state, which may be full, but
+     *            not INVALID
+     * @param ownId
+     *            (PlayerId): id of the player whose hand is known, whether or
+     *            not it is the one to play
+     * @param pkHand
+     *            (long): packed unplayed cards of that player
+     * @param features
+     *            (double[]): array of FEATURES elements in which the features
+     *            of the state are written
+     * @return (long): packed score in which the points left in the turn are
+     *         shared between the teams as estimated by this function
+     */
+    long finalScore(long pkScore, long pkUnplayedCards, int pkTrick,
+            PlayerId ownId, long pkHand, double[] features) {
+        if (PackedTrick.isFull(pkTrick)) {
+            pkScore = PackedScore.withAdditionalTrick(pkScore,
+                    PackedTrick.winningPlayer(pkTrick).team(),
+                    PackedTrick.points(pkTrick));
+            if (PackedTrick.isLast(pkTrick))
+                return pkScore;
+            pkTrick = PackedTrick.nextEmpty(pkTrick);
+        }
+
+        features(pkScore, pkUnplayedCards, pkTrick, ownId, pkHand, features);
+        double share = 0;
+        for (int i = 0; i < FEATURES; i++)
+            share += weights[i] * features[i];
+        share = Math.max(0, Math.min(1, share));
+
+        int left = pointsLeft(pkScore);
+        int ownPoints = (int) Math.round(share * left);
+        int team1Points = ownId.team() == TeamId.TEAM_1 ? ownPoints
+                : left - ownPoints;
+        return PackedScore.pack(
+                PackedScore.turnTricks(pkScore, TeamId.TEAM_1),
+                PackedScore.turnPoints(pkScore, TeamId.TEAM_1) + team1Points,
+                PackedScore.gamePoints(pkScore, TeamId.TEAM_1),
+                PackedScore.turnTricks(pkScore, TeamId.TEAM_2),
+                PackedScore.turnPoints(pkScore, TeamId.TEAM_2) + left
+                        - team1Points,
+                PackedScore.gamePoints(pkScore, TeamId.TEAM_2));
+    }
+
+    /**
+     * @return (double[]): a copy of the weights of this function
+     */
+    public double[] weights() {
+        return weights.clone();
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(weights);
+    }
+
+    /*
+     * Writes the features of a state whose trick is not full in the given
+     * array, from the point of view of the given player, who holds the given
+     * hand. The colors are given with the trump first, then in their order
+     */
+    private static void features(long pkScore, long pkUnplayedCards,
+            int pkTrick, PlayerId player, long pkHand, double[] features) {
+        Color trump = PackedTrick.trump(pkTrick);
+        TeamId team = player.team();
+        int left = pointsLeft(pkScore);
+
+        int trickPoints = 0;
+        int best = PackedCard.INVALID;
+        PlayerId winner = null;
+        for (int i = 0; i < PackedTrick.size(pkTrick); i++) {
+            int card = PackedTrick.card(pkTrick, i);
+            trickPoints += PackedCard.points(trump, card);
+            if (best == PackedCard.INVALID
+                    || PackedCard.isBetter(trump, card, best)) {
+                best = card;
+                winner = PackedTrick.player(pkTrick, i);
+            }
+        }
+        int handPoints = 0;
+        for (long cards = pkHand; cards != 0; cards &= cards - 1)
+            handPoints += PackedCard.points(trump,
+                    Long.numberOfTrailingZeros(cards));
+
+        features[0] = 1;
+        features[1] = PackedCardSet.size(
+                PackedCardSet.subsetOfColor(pkHand, trump))
+                / (double) Jass.HAND_SIZE;
+        features[2] = (double) handPoints / left;
+        features[3] = (double) trickPoints / left;
+        features[4] = winner != null && winner.team() == team ? 1 : 0;
+        features[5] = (double) (Jass.TRICKS_PER_TURN
+                - PackedTrick.index(pkTrick)) / Jass.TRICKS_PER_TURN;
+        features[6] = (double) PackedScore.turnTricks(pkScore, team)
+                / Jass.TRICKS_PER_TURN;
+        features[7] = (double) PackedScore.turnTricks(pkScore, team.other())
+                / Jass.TRICKS_PER_TURN;
+        features[8] = PackedCardSet.size(
+                PackedCardSet.subsetOfColor(pkUnplayedCards, trump))
+                / (double) Card.Rank.COUNT;
+        int i = 9;
+        for (Color color : Color.ALL) {
+            if (color != trump)
+                features[i++] = PackedCardSet.size(
+                        PackedCardSet.subsetOfColor(pkUnplayedCards, color))
+                        / (double) Card.Rank.COUNT;
+        }
+    }
+
+    /*
+     * @return (int): points left to win in the turn, once the trick of the
+     * given score has been collected
+     */
+    private static int pointsLeft(long pkScore) {
+        return TURN_POINTS - PackedScore.turnPoints(pkScore, TeamId.TEAM_1)
+                - PackedScore.turnPoints(pkScore, TeamId.TEAM_2);
+    }
+
+    /*
+     * Deals the 36 cards at random
+     */
+    private static void deal(SplittableRandom rng, long[] hands) {
+        long cards = PackedCardSet.ALL_CARDS;
+        for (int i = 0; i < PlayerId.COUNT; i++) {
+            hands[i] = PackedCardSet.EMPTY;
+            for (int j = 0; j < Jass.HAND_SIZE; j++) {
+                int card = PackedCardSet.random(cards, rng);
+                cards = PackedCardSet.remove(cards, card);
+                hands[i] = PackedCardSet.add(hands[i], card);
+            }
+        }
+    }
+
+    /*
+     * Adds an example to the normal equations, whose last column holds the
+     * right-hand side
+     */
+    private static void addExample(double[][] normal, double[] features,
+            double target) {
+        for (int i = 0; i < FEATURES; i++) {
+            for (int j = 0; j < FEATURES; j++)
+                normal[i][j] += features[i] * features[j];
+            normal[i][FEATURES] += features[i] * target;
+        }
+    }
+
+    /*
+     * Solves the normal equations by Gaussian elimination with partial
+     * pivoting
+     *
+     * @return (double[]): the weights
+     */
+    private static double[] solve(double[][] normal) {
+        int n = FEATURES;
+        for (int i = 0; i < n; i++)
+            normal[i][i] += RIDGE;
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(normal[row][col]) > Math
+                        .abs(normal[pivot][col]))
+                    pivot = row;
+            }
+            double[] tmp = normal[col];
+            normal[col] = normal[pivot];
+            normal[pivot] = tmp;
+
+            for (int row = col + 1; row < n; row++) {
+                double factor = normal[row][col] / normal[col][col];
+                for (int k = col; k <= n; k++)
+                    normal[row][k] -= factor * normal[col][k];
+            }
+        }
+
+        double[] weights = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = normal[row][n];
+            for (int k = row + 1; k < n; k++)
+                sum -= normal[row][k] * weights[k];
+            weights[row] = sum / normal[row][row];
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,118 @@
+package ch.epfl.javass.jass;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.epfl.javass.Preconditions;
+
+/**
+ * A fixed pool of workers searching for any number of MctsPlayers, for
+ * instance all the simulated players of the tables hosted by a program. Each
+ * search is cut into slices of a few hundred turns per worker, and a search
+ * only submits its next slices once the previous ones are done, so that the
+ * searches in progress take turns on the workers in the order of their
+ * slices, each within its own budget
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+public final class MctsEngine implements AutoCloseable {
+
+    /*
+     * Number of the next engine, used to name its threads
+     */
+    private static final AtomicInteger ENGINES = new AtomicInteger();
+
+    /*
+     * Number of workers
+     */
+    private final int workers;
+    /*
+     * Workers, and the slices waiting for them
+     */
+    private final ThreadPoolExecutor executor;
+    /*
+     * Time at which the engine was created, and total time spent by the
+     * workers searching since then, in nanoseconds
+     */
+    private final long startNanos;
+    private final LongAdder busyNanos = new LongAdder();
+
+    /**
+     * Creates an engine and starts its workers
+     *
+     * @param workers
+     *            (int): number of workers, at least 1
+     */
+    public MctsEngine(int workers) {
+        Preconditions.checkArgument(workers >= 1);
+
+        this.workers = workers;
+        int engine = ENGINES.getAndIncrement();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "MCTS engine " + engine
+                            + ", worker " + threads.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return (int): number of workers of the engine
+     */
+    public int workers() {
+        return workers;
+    }
+
+    /**
+     * @return (int): number of slices waiting for a worker
+     */
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return (double): proportion, between 0 and 1, of the time the workers
+     *         spent searching since the engine was created
+     */
+    public double utilization() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0
+                : Math.min(1, (double) busyNanos.sum() / workers / elapsed);
+    }
+
+    /**
+     * Submits a slice of a search, which is done by the first free worker
+     * once the slices submitted before are done or in progress
+     *
+     * @param slice
+     *            (Runnable): the slice
+     * @return (Future<?>): the slice in progress
+     */
+    Future<?> submit(Runnable slice) {
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                slice.run();
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Stops the workers once the slices submitted are done. The players using
+     * the engine can no longer search
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -3,6 +3,12 @@ package ch.epfl.javass.jass;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 import ch.epfl.javass.Preconditions;
 
@@ -14,20 +20,88 @@ import ch.epfl.javass.Preconditions;
  */
 public final class MctsPlayer implements Player {
 
+    /**
+     * The ways in which the search can be spread over several workers
+     */
+    public enum Parallelism {
+        /**
+         * Each worker searches its own tree, the statistics of the children of
+         * the roots are merged at the end (reproducible for a given seed)
+         */
+        ROOT,
+        /**
+         * All workers search a single shared tree (not reproducible, as the
+         * tree depends on the scheduling of the workers)
+         */
+        TREE
+    }
+
     /*
      * Id of this MctsPlayer
      */
     private final PlayerId ownId;
     /*
-     * Total number of turns we aim to simulate
+     * Budget of the search and number of workers
      */
-    private final int iterations;
+    private final MctsSettings settings;
     /*
      * Splittable RNG used to finish the turn randomly
      */
     private final SplittableRandom rng;
+    /*
+     * Engine on which the trees are searched, null if this player searches
+     * them on its own
+     */
+    private final MctsEngine engine;
+    /*
+     * Pool on which the trees are searched, null if there is only one worker
+     * or an engine
+     */
+    private final ForkJoinPool pool;
+    /*
+     * Trees searched by the workers, reused from one card to play to the
+     * next: one per worker, or a single one if it is shared by the workers
+     */
+    private final MctsTree[] trees;
+    /*
+     * What this player knows of the hands of the current turn
+     */
+    private final CardKnowledge knowledge;
+    /*
+     * Solver of each worker, null if the turns are only finished with the
+     * rollout policy
+     */
+    private final EndgameSolver[] solvers;
+    /*
+     * Table shared by the trees, null if the settings have none
+     */
+    private final TranspositionTable table;
+    /*
+     * Thread searching the trees in the background, null if this player does
+     * not ponder
+     */
+    private final ExecutorService ponderer;
+    /*
+     * Background search in progress, null if there is none, and whether it
+     * should go on
+     */
+    private Future<?> ponderTask;
+    private volatile boolean pondering;
+    /*
+     * Last score received, from which the trees are created again when the
+     * cards played are not in them
+     */
+    private long pkScore;
+    /*
+     * Statistics of the last search, null before the first one
+     */
+    private volatile MctsStatistics lastStatistics;
 
-    private final static int EMPIRICAL_CONSTANT = 40;
+    /*
+     * Number of turns simulated by each worker between two checks of the
+     * budget
+     */
+    private final static int SLICE = 256;
 
     /**
      * Creates a new MctsPlayer
@@ -40,261 +114,462 @@ public final class MctsPlayer implements Player {
      *            (int): total number of turns we aim to simulate
      */
     public MctsPlayer(PlayerId ownId, long rngSeed, int iterations) {
+        this(ownId, rngSeed, MctsSettings.ofIterations(iterations));
+    }
 
-        Preconditions.checkArgument(iterations >= Jass.HAND_SIZE);
-
-        this.ownId = ownId;
-        this.rng = new SplittableRandom(rngSeed);
-        this.iterations = iterations;
+    /**
+     * Creates a new MctsPlayer which searches the given number of independent
+     * trees in parallel (root parallelisation), the iterations being shared
+     * between them
+     * 
+     * @param ownId
+     *            (PlayerId): Id of the simulated player
+     * @param rngSeed
+     *            (long): seed of the splittable RNG
+     * @param iterations
+     *            (int): total number of turns we aim to simulate
+     * @param workers
+     *            (int): number of trees searched in parallel
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations,
+            int workers) {
+        this(ownId, rngSeed, iterations, workers, Parallelism.ROOT);
     }
 
-    /*
-     * @param pId (PlayerId): id of player for whom we want to determine the
-     * playable cards
+    /**
+     * Creates a new MctsPlayer which spreads its search over the given number
+     * of workers
      * 
-     * @param pkHand (long): packed hand
+     * @param ownId
+     *            (PlayerId): Id of the simulated player
+     * @param rngSeed
+     *            (long): seed of the splittable RNG
+     * @param iterations
+     *            (int): total number of turns we aim to simulate
+     * @param workers
+     *            (int): number of workers searching in parallel
+     * @param parallelism
+     *            (Parallelism): whether the workers search independent trees
+     *            or a single shared one
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations,
+            int workers, Parallelism parallelism) {
+        this(ownId, rngSeed, MctsSettings.ofIterations(iterations)
+                .withWorkers(workers, parallelism));
+    }
+
+    /**
+     * Creates a new MctsPlayer searching with the given settings
      * 
-     * @param state (TurnState): current state of the turn
+     * @param ownId
+     *            (PlayerId): Id of the simulated player
+     * @param rngSeed
+     *            (long): seed of the splittable RNG
+     * @param settings
+     *            (MctsSettings): budget of the search and number of workers
+     * @throws IllegalArgumentException
+     *             if the settings search information sets with workers
+     *             sharing a single tree, or with priors
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, MctsSettings settings) {
+        this(ownId, rngSeed, settings, null);
+    }
+
+    /**
+     * Creates a new MctsPlayer searching with the given settings on the
+     * workers of the given engine, which may be shared with other players.
+     * The workers of the settings are then the number of slices the player
+     * submits at once to the engine
      * 
-     * @return (long): packed version of the set of playable cards for given
-     * player id, state, and hand of this player
-     */
-    private long playableCardsforState(PlayerId pId, long pkHand,
-            TurnState state) {
-        // Making a copy of the state so that we don't modify it;
-        TurnState stateCopy = state;
-        int trick = stateCopy.packedTrick();
-        long unplayed = stateCopy.packedUnplayedCards();
-
-        if (PackedTrick.isFull(trick))
-            stateCopy = stateCopy.withTrickCollected();
-        if (stateCopy.isTerminal())
-            return PackedCardSet.EMPTY;
-
-        // If we want the playable cards for this MctsPlayer, we take the
-        // intersection of its hand with set of unplayed cards
-        if (pId == ownId)
-            return PackedTrick.playableCards(trick,
-                    PackedCardSet.intersection(pkHand, unplayed));
-
-        // If we want playable cards for other players, we take playable
-        // cards from unplayed set excluding hand of this simulated
-        // player
-        return PackedTrick.playableCards(trick,
-                PackedCardSet.difference(unplayed, pkHand));
+     * @param ownId
+     *            (PlayerId): Id of the simulated player
+     * @param rngSeed
+     *            (long): seed of the splittable RNG
+     * @param settings
+     *            (MctsSettings): budget of the search and number of workers
+     * @param engine
+     *            (MctsEngine): engine on which the player searches, null if
+     *            it searches on its own
+     * @throws IllegalArgumentException
+     *             if the settings search information sets with workers
+     *             sharing a single tree, or with priors
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, MctsSettings settings,
+            MctsEngine engine) {
+        Preconditions.checkArgument(!settings.searchesInformationSets()
+                || ((settings.parallelism() == Parallelism.ROOT
+                        || settings.workers() == 1)
+                        && !settings.usesPriors()));
+
+        this.ownId = ownId;
+        this.knowledge = new CardKnowledge(ownId);
+        this.rng = new SplittableRandom(rngSeed);
+        this.settings = settings;
+        this.engine = engine;
+
+        int workers = settings.workers();
+        this.pool = workers > 1 && engine == null ? new ForkJoinPool(workers)
+                : null;
+
+        boolean shared = settings.parallelism() == Parallelism.TREE
+                && workers > 1;
+        this.table = settings.transpositionTableSize() > 0
+                ? new TranspositionTable(settings.transpositionTableSize())
+                : null;
+        this.solvers = new EndgameSolver[workers];
+        if (settings.endgameCards() > 0) {
+            for (int i = 0; i < workers; i++)
+                solvers[i] = new EndgameSolver(settings.endgameCards());
+        }
+        this.trees = new MctsTree[shared ? 1 : workers];
+        for (int i = 0; i < trees.length; i++)
+            trees[i] = new MctsTree(ownId, shared, table,
+                    settings.searchesInformationSets(),
+                    settings.raveEquivalence(), settings.rolloutPolicy(),
+                    settings.usesPriors(), settings.leafEvaluator(),
+                    settings.evaluationDepth(), settings.maxTreeSize());
+
+        this.ponderer = settings.ponders()
+                ? Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "Pondering of " + ownId);
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    /**
+     * @return (MctsStatistics): statistics of the search made for the last
+     *         card played, null if this player has not played yet
+     */
+    public MctsStatistics lastStatistics() {
+        return lastStatistics;
+    }
+
+    @Override
+    public Card cardToPlay(TurnState state, CardSet hand) {
+        long start = System.nanoTime();
+        return cardToPlay(state, hand, start,
+                start + settings.timeBudget() * 1_000_000,
+                settings.isTimed());
+    }
+
+    /**
+     * Chooses the card to play, searching until the given deadline, or until
+     * the time budget of the settings has elapsed if it is later. The
+     * iterations of the settings are done in any case
+     */
+    @Override
+    public Card cardToPlay(TurnState state, CardSet hand, long deadline) {
+        long start = System.nanoTime();
+        long budget = start + settings.timeBudget() * 1_000_000;
+        return cardToPlay(state, hand, start,
+                settings.isTimed() && budget - deadline > 0 ? budget
+                        : deadline,
+                true);
     }
 
     /*
-     * Adds when possible a new node at the necessary place in the tree, returns
-     * the path from the root (excluded) to the added node
-     * 
-     * @param root (Node): the root of the tree
-     * 
-     * @param pkHand (long): the packed hand of cards of this simulated player
-     * 
-     * @return (List<Node>): a list of nodes forming the path from the root to
-     * the node
-     */
-    private List<Node> findPath(Node root, long pkHand) {
-
-        Node currentNode = root;
-        int best = 0;
-        List<Node> path = new ArrayList<Node>();
-
-        // while current node has all its children and bottom of the tree has
-        // not been reached
-        while (PackedCardSet.isEmpty(currentNode.inexistentChildNodes)
-                && currentNode.childNodes.length > 0) {
-            // index of the child we want to explore
-            best = currentNode.bestChild(EMPIRICAL_CONSTANT);
-            // changes currentNode to a node further down the tree
-            currentNode = currentNode.childNodes[best];
-            path.add(currentNode);
+     * Chooses the card to play by doing the iterations of the settings, then
+     * by simulating turns until the deadline if the search is timed. A forced
+     * card is played without any search, and the search stops early if the
+     * settings allow it and the card to play is decided
+     */
+    private Card cardToPlay(TurnState state, CardSet hand, long start,
+            long deadline, boolean timed) {
+        stopPondering();
+
+        int workers = settings.workers();
+        // the iterations are shared between the workers, but every independent
+        // tree must be able to expand all the children of its root
+        int workerIterations = Math.max(Jass.HAND_SIZE,
+                (settings.iterations() + workers - 1) / workers);
+
+        long playableCards = PackedTrick.playableCards(state.packedTrick(),
+                hand.packed());
+        if (PackedCardSet.size(playableCards) == 1) {
+            lastStatistics = new MctsStatistics(0, 0,
+                    System.nanoTime() - start, 0, 0, 0,
+                    (long) workerIterations * workers, 0, 0);
+            return Card.ofPacked(PackedCardSet.get(playableCards, 0));
+        }
+        SplittableRandom[] workerRngs = workerRngs();
+
+        if (table != null)
+            table.resetCounters();
+
+        // the subtrees reached through the cards played since the last
+        // search are reused, with their statistics
+        knowledge.updateHand(hand.packed());
+        int done = workerIterations;
+        for (MctsTree tree : trees) {
+            if (!tree.reuse(state, knowledge))
+                tree.reset(state, knowledge);
+            done = Math.min(done,
+                    tree.iterations() / (workers / trees.length));
+        }
+        int reused = iterations();
+
+        // simulates turns by slices, until the iterations are done and the
+        // time budget has elapsed
+        long searched = 0;
+        long iterationsSaved = 0;
+        long prunedNodes = 0;
+        int peakNodes = nodes();
+        while (done < workerIterations
+                || (timed && System.nanoTime() - deadline < 0)) {
+            int slice = done < workerIterations
+                    ? Math.min(SLICE, workerIterations - done)
+                    : SLICE;
+            prunedNodes += searchSlice(slice, workerRngs);
+            done += slice;
+            searched += (long) slice * workers;
+            peakNodes = Math.max(peakNodes, nodes());
+
+            if (settings.stopsEarly()) {
+                long left = iterationsLeft(workerIterations - done, searched,
+                        start, deadline, timed);
+                if (MctsTree.isDecided(trees, left)) {
+                    iterationsSaved = left;
+                    break;
+                }
+            }
         }
 
-        // turn state of the node we are going to add to the tree
-        TurnState newState = currentNode.turnState;
-        if (PackedTrick.isFull(newState.packedTrick()))
-            newState = newState.withTrickCollected();
+        lastStatistics = new MctsStatistics(searched, reused,
+                System.nanoTime() - start, nodes(),
+                table == null ? 0 : table.lookups(),
+                table == null ? 0 : table.hits(), iterationsSaved,
+                prunedNodes, peakNodes);
 
-        // if we have reached the bottom of the tree, then return the path
-        // directly
-        if (currentNode.childNodes.length == 0)
-            return path;
+        // return the optimal card to play thanks to the calculation of best
+        // child, the statistics of independent trees being added up. When
+        // the search may stop early, it is the most simulated one, which is
+        // the one the search was stopped for
+        return MctsTree.bestCard(trees, settings.stopsEarly());
+    }
 
-        // newState has a new card played in it
-        newState = newState.withNewCardPlayed(Card.ofPacked(
-                PackedCardSet.get(currentNode.inexistentChildNodes, 0)));
+    /* (non-Javadoc)
+     * @see ch.epfl.javass.jass.Player#setTrump(ch.epfl.javass.jass.Card.Color)
+     */
+    @Override
+    public void setTrump(Card.Color trump) {
+        stopPondering();
+        // the statistics of the table only hold for the hand of one turn
+        if (table != null)
+            table.clear();
+        knowledge.newTurn();
+    }
 
-        // who plays next depends on whether the trick is over
-        PlayerId nextPlayer = PackedTrick.isFull(newState.packedTrick())
-                ? PackedTrick.winningPlayer(newState.packedTrick())
-                : newState.nextPlayer();
+    /* (non-Javadoc)
+     * @see ch.epfl.javass.jass.Player#updateHand(ch.epfl.javass.jass.CardSet)
+     */
+    @Override
+    public void updateHand(CardSet newHand) {
+        stopPondering();
+        knowledge.updateHand(newHand.packed());
+    }
 
-        // set of playable cards for the next state
-        long newPlayableCards = playableCardsforState(nextPlayer, pkHand,
-                newState);
+    /* (non-Javadoc)
+     * @see ch.epfl.javass.jass.Player#updateScore(ch.epfl.javass.jass.Score)
+     */
+    @Override
+    public void updateScore(Score score) {
+        pkScore = score.packed();
+    }
 
-        // number of children the current node already has, used to know at
-        // which position to create the new child node
-        int count = currentNode.childNodes.length
-                - PackedCardSet.size(currentNode.inexistentChildNodes);
+    /* (non-Javadoc)
+     * @see ch.epfl.javass.jass.Player#setWinningTeam(ch.epfl.javass.jass.TeamId)
+     */
+    @Override
+    public void setWinningTeam(TeamId winningTeam) {
+        stopPondering();
+    }
 
-        // creates the new node as a child of the current node
-        currentNode.childNodes[count] = new Node(newState, newPlayableCards);
+    /* (non-Javadoc)
+     * @see ch.epfl.javass.jass.Player#updateTrick(ch.epfl.javass.jass.Trick)
+     */
+    @Override
+    public void updateTrick(Trick newTrick) {
+        stopPondering();
+        knowledge.updateTrick(newTrick.packed());
 
-        // updates the current node's inexistantChildNodes
-        currentNode.inexistentChildNodes = PackedCardSet.remove(
-                currentNode.inexistentChildNodes,
-                PackedCardSet.get(currentNode.inexistentChildNodes, 0));
+        // follows the cards played in the trees, to reuse their subtrees
+        for (MctsTree tree : trees)
+            tree.advance(newTrick.packed());
+
+        if (ponderer != null)
+            startPondering(newTrick.packed());
+    }
 
-        // adds the new node to the path
-        path.add(currentNode.childNodes[count]);
+    /*
+     * Searches the trees in the background from the current state of the
+     * turn, until the iterations allowed for pondering are done or the
+     * pondering is stopped. The trees which kept their root learn what is
+     * now known of the hands, the others, which lost it because the cards
+     * played were not in them, are created again
+     *
+     * @param pkTrick (int): packed trick of the current state of the turn
+     */
+    private void startPondering(int pkTrick) {
+        // nothing is left to play once the last trick is full
+        long unplayedCards = knowledge.unplayedCards();
+        if (PackedCardSet.isEmpty(unplayedCards))
+            return;
+
+        TurnState state = TurnState.ofPackedComponents(pkScore, unplayedCards,
+                pkTrick);
+        for (MctsTree tree : trees) {
+            if (tree.hasRoot())
+                tree.know(knowledge);
+            else
+                tree.reset(state, knowledge);
+        }
 
-        return path;
+        SplittableRandom[] ponderRngs = workerRngs();
+        pondering = true;
+        ponderTask = ponderer.submit(() -> {
+            while (pondering
+                    && iterations() < settings.ponderingIterations())
+                searchSlice(SLICE, ponderRngs);
+        });
     }
 
     /*
-     * Finishes a turn randomly and returns the final score
-     * 
-     * @param turnState (TurnState): the state from which we play randomly to
-     * finish
-     * 
-     * @param pkHand (long): this player's hand
-     * 
-     * @return (long): final score of a randomly finished turn from given turn
-     * state
-     */
-    private long finishTurn(TurnState turnState, long pkHand) {
-
-        if (PackedTrick.isFull(turnState.packedTrick())
-                && !turnState.isTerminal())
-            turnState = turnState.withTrickCollected();
-
-        // while the turn is not over, each player plays random cards
-        while (!turnState.isTerminal()) {
-            // cards the player whose turn it is can play
-            long playableCards = playableCardsforState(turnState.nextPlayer(),
-                    pkHand, turnState);
-            // card it chooses
-            int card = PackedCardSet.get(playableCards,
-                    rng.nextInt(PackedCardSet.size(playableCards)));
-            // adds card to state
-            turnState = turnState
-                    .withNewCardPlayedAndTrickCollected(Card.ofPacked(card));
+     * Stops the search in the background and waits for the end of its last
+     * slice, so that the trees can be used by this thread
+     */
+    private void stopPondering() {
+        if (ponderTask == null)
+            return;
+
+        pondering = false;
+        await(ponderTask);
+        ponderTask = null;
+    }
+
+    /*
+     * Waits for the end of the given task, whose exception is thrown again
+     */
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
         }
-        return turnState.packedScore();
     }
 
-    @Override
-    public Card cardToPlay(TurnState state, CardSet hand) {
-        long pkHand = hand.packed();
-        // representing last card played before it is simulated player's turn
-        Node root = new Node(state,
-                playableCardsforState(state.nextPlayer(), pkHand, state));
-        List<Node> path;
-
-        // simulates the desired number of turns and distributes corresponding
-        // points
-        while (root.totalTurns < iterations) {
-            path = findPath(root, pkHand);
-            long finalScore = finishTurn(path.get(path.size() - 1).turnState,
-                    pkHand);
-            root.totalTurns++;
-            for (Node node : path) {
-                // update total turns simulated and propagate the points for
-                // each node on the path
-                node.totalTurns++;
-                int trick = node.turnState.packedTrick();
-                node.totalPoints += PackedScore.totalPoints(finalScore,
-                        PackedTrick.player(trick, PackedTrick.size(trick) - 1)
-                                .team());
-            }
+    /*
+     * Estimates the total number of turns the search has left to simulate:
+     * those needed to do the iterations of the settings, or if the search is
+     * timed, those it can simulate until the deadline at its current speed
+     *
+     * @param workerIterations (int): number of iterations left to each worker
+     *
+     * @param searched (long): total number of turns simulated since the start
+     * of the search
+     *
+     * @return (long): total number of turns left
+     */
+    private long iterationsLeft(int workerIterations, long searched,
+            long start, long deadline, boolean timed) {
+        long left = (long) Math.max(0, workerIterations) * settings.workers();
+        if (timed) {
+            long now = System.nanoTime();
+            if (deadline - now > 0 && now - start > 0)
+                left = Math.max(left, (long) ((double) searched
+                        * (deadline - now) / (now - start)));
         }
+        return left;
+    }
 
-        Trick trick = root.childNodes[root.bestChild(0)].turnState.trick();
-        // return the optimal card to play thanks to the calculation of best
-        // child
-        return trick.card(trick.size() - 1);
+    /*
+     * @return (int): total number of turns simulated from the roots of the
+     * trees
+     */
+    private int iterations() {
+        int iterations = 0;
+        for (MctsTree tree : trees)
+            iterations += tree.iterations();
+        return iterations;
     }
 
-    /**
-     * A node of the tree
+    /*
+     * @return (int): total number of nodes in the trees
+     */
+    private int nodes() {
+        int nodes = 0;
+        for (MctsTree tree : trees)
+            nodes += tree.size();
+        return nodes;
+    }
+
+    /*
+     * Splits the RNG of this player into one RNG per worker. The RNGs are
+     * split in order, on this thread, so that a given seed always gives the
+     * same independent trees regardless of the scheduling
      *
+     * @return (SplittableRandom[]): the RNG of each worker
      */
-    private static final class Node {
-        /**
-         * TurnState corresponding to the node
-         */
-        private final TurnState turnState;
-        /**
-         * array containing all the node's children
-         */
-        private final Node[] childNodes;
-        /**
-         * the set of cards corresponding to the node's inexistent child nodes
-         */
-        private long inexistentChildNodes;
-        /**
-         * total points gained by the team who played the last card of the
-         * state's trick
-         */
-        private int totalPoints;
-        /**
-         * total number of turns simulated using this node
-         */
-        private int totalTurns;
+    private SplittableRandom[] workerRngs() {
+        int workers = settings.workers();
+        SplittableRandom[] workerRngs = new SplittableRandom[workers];
+        for (int i = 0; i < workers; i++)
+            workerRngs[i] = workers == 1 ? rng : rng.split();
+        return workerRngs;
+    }
 
-        /**
-         * Creates a new node
-         * 
-         * @param turnState
-         *            (TurnState): TurnState corresponding to the node
-         * @param playableCards
-         *            (long): set of playable cards for the current state,
-         *            corresponding to all possible children of the node
-         */
-        private Node(TurnState turnState, long playableCards) {
-            this.turnState = turnState;
-            this.childNodes = new Node[PackedCardSet.size(playableCards)];
-            this.inexistentChildNodes = playableCards;
-            this.totalPoints = 0;
-            this.totalTurns = 0;
+    /*
+     * Makes each worker simulate the given number of turns in its tree, or in
+     * the shared tree, on the engine if there is one. The bounded trees are
+     * pruned first if they are too full
+     * 
+     * @param iterations (int): number of turns simulated by each worker
+     * 
+     * @param workerRngs (SplittableRandom[]): RNG of each worker
+     * 
+     * @return (int): number of nodes released by the pruning
+     */
+    private int searchSlice(int iterations, SplittableRandom[] workerRngs) {
+        int workers = workerRngs.length;
+        int prunedNodes = 0;
+        for (MctsTree tree : trees) {
+            int nodes = iterations * (workers / trees.length);
+            prunedNodes += tree.prune(nodes);
+            tree.ensureCapacity(nodes);
         }
 
-        /*
-         * Calculates the index of the best child node, i.e. the most
-         * interesting one to explore among its siblings
-         * 
-         * @param c (int): constant which determines the importance of the fact
-         * that one child node is less explored in the choice of best child
-         * 
-         * @return (int): index of the best child node
-         */
-        private int bestChild(int c) {
-            // value we will calculate for each node using formula
-            double value;
-            double maxValue = 0;
-            // index of child with maxValue
-            int maxIndex = 0;
-            double parentLog = 2 * Math.log(totalTurns);
-
-            for (int i = 0; i < childNodes.length; i++) {
-                Node child = childNodes[i];
-                int childTotalTurns = child.totalTurns;
-
-                if (childTotalTurns <= 0)
-                    return i;
-
-                value = ((double) child.totalPoints / childTotalTurns)
-                        + c * Math.sqrt(parentLog / childTotalTurns);
-
-                if (value > maxValue) {
-                    maxValue = value;
-                    maxIndex = i;
-                }
+        if (engine != null) {
+            List<Future<?>> slices = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                MctsTree tree = trees[i % trees.length];
+                SplittableRandom workerRng = workerRngs[i];
+                EndgameSolver solver = solvers[i];
+                slices.add(engine.submit(
+                        () -> tree.search(iterations, workerRng, solver)));
             }
-            return maxIndex;
+            for (Future<?> slice : slices)
+                await(slice);
+            return prunedNodes;
+        }
+
+        if (workers == 1) {
+            trees[0].search(iterations, workerRngs[0], solvers[0]);
+            return prunedNodes;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            MctsTree tree = trees[i % trees.length];
+            SplittableRandom workerRng = workerRngs[i];
+            EndgameSolver solver = solvers[i];
+            tasks.add(pool.submit(
+                    () -> tree.search(iterations, workerRng, solver)));
         }
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+        return prunedNodes;
     }
 }
\ No newline at end of file
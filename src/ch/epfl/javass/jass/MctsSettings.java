@@ -0,0 +1,477 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.MctsPlayer.Parallelism;
+
+/**
+ * Immutable settings of the search of an MctsPlayer: its budget, given as a
+ * number of iterations or as a time, the way it is spread over workers, and
+ * the optional improvements of the search
+ * 
+ * @author Yingxuan Duan (282512)
+ *
+ */
+public final class MctsSettings {
+
+    /*
+     * Number of turns to simulate, or minimal number of turns to simulate if
+     * the search is timed
+     */
+    private final int iterations;
+    /*
+     * Time in milliseconds during which the search goes on, 0 if the search is
+     * not timed
+     */
+    private final long timeBudget;
+    /*
+     * Number of workers searching in parallel
+     */
+    private final int workers;
+    /*
+     * How the search is spread over the workers
+     */
+    private final Parallelism parallelism;
+    /*
+     * Number of entries of the transposition table, 0 if there is none
+     */
+    private final int transpositionTableSize;
+    /*
+     * Number of unplayed cards below which the end of the turn is solved
+     * exactly, 0 if it is never solved
+     */
+    private final int endgameCards;
+    /*
+     * Whether each simulated turn is played on a random deal of the hidden
+     * cards
+     */
+    private final boolean informationSets;
+    /*
+     * Maximal number of turns simulated in the background while the other
+     * players play, 0 if the search stops once a card has been chosen
+     */
+    private final int ponderingIterations;
+    /*
+     * Number of turns simulated through a node for which its own average
+     * counts as much as the average of all moves as first, 0 without RAVE
+     */
+    private final int raveEquivalence;
+    /*
+     * Policy choosing the cards played once a simulated turn leaves the tree
+     */
+    private final RolloutPolicy rolloutPolicy;
+    /*
+     * Whether the card played is the most simulated one, and the search
+     * stops once it can no longer change
+     */
+    private final boolean earlyStop;
+    /*
+     * Whether the cards are tried according to their priors
+     */
+    private final boolean priors;
+    /*
+     * Function estimating the end of the simulated turns, null if they are
+     * played until the end, and number of cards played before it is used
+     */
+    private final LinearValueFunction leafEvaluator;
+    private final int evaluationDepth;
+    /*
+     * Maximal number of nodes of each tree, 0 if the trees are not bounded
+     */
+    private final int maxTreeSize;
+
+    /**
+     * Maximal number of entries of the transposition table
+     */
+    public static final int MAX_TRANSPOSITION_TABLE_SIZE = 1 << 30;
+    /**
+     * Maximal number of unplayed cards for which the end of the turn can be
+     * solved exactly, that is the cards of the last 4 tricks
+     */
+    public static final int MAX_ENDGAME_CARDS = 4 * PlayerId.COUNT;
+    /**
+     * Minimal number of nodes to which a tree can be bounded
+     */
+    public static final int MIN_TREE_SIZE = 1 << 10;
+
+    /**
+     * Private constructor, static methods are used instead as constructors,
+     * and the methods returning modified settings build new settings
+     */
+    private MctsSettings(int iterations, long timeBudget, int workers,
+            Parallelism parallelism, int transpositionTableSize,
+            int endgameCards, boolean informationSets, int ponderingIterations,
+            int raveEquivalence, RolloutPolicy rolloutPolicy, boolean earlyStop,
+            boolean priors, LinearValueFunction leafEvaluator,
+            int evaluationDepth, int maxTreeSize) {
+        this.iterations = iterations;
+        this.timeBudget = timeBudget;
+        this.workers = workers;
+        this.parallelism = parallelism;
+        this.transpositionTableSize = transpositionTableSize;
+        this.endgameCards = endgameCards;
+        this.informationSets = informationSets;
+        this.ponderingIterations = ponderingIterations;
+        this.raveEquivalence = raveEquivalence;
+        this.rolloutPolicy = rolloutPolicy;
+        this.earlyStop = earlyStop;
+        this.priors = priors;
+        this.leafEvaluator = leafEvaluator;
+        this.evaluationDepth = evaluationDepth;
+        this.maxTreeSize = maxTreeSize;
+    }
+
+    /**
+     * @param iterations
+     *            (int): total number of turns we aim to simulate, at least 9
+     * @return (MctsSettings): settings of a search on a single worker,
+     *         simulating the given number of turns
+     */
+    public static MctsSettings ofIterations(int iterations) {
+        Preconditions.checkArgument(iterations >= Jass.HAND_SIZE);
+        return of(iterations, 0);
+    }
+
+    /**
+     * @param millis
+     *            (long): time in milliseconds during which the search goes on
+     * @return (MctsSettings): settings of a search on a single worker,
+     *         simulating turns until the given time has elapsed, and at least
+     *         9 turns so that every card of the hand is tried
+     */
+    public static MctsSettings ofTimeBudget(long millis) {
+        Preconditions.checkArgument(millis > 0);
+        return of(Jass.HAND_SIZE, millis);
+    }
+
+    /*
+     * @return (MctsSettings): settings of a search on a single worker with
+     * the given budget, without any of the optional improvements
+     */
+    private static MctsSettings of(int iterations, long timeBudget) {
+        return new MctsSettings(iterations, timeBudget, 1, Parallelism.ROOT, 0,
+                0, false, 0, 0, RolloutPolicy.UNIFORM, false, false, null, 0,
+                0);
+    }
+
+    /**
+     * @param workers
+     *            (int): number of workers searching in parallel
+     * @param parallelism
+     *            (Parallelism): whether the workers search independent trees
+     *            or a single shared one
+     * @return (MctsSettings): these settings, with the search spread over the
+     *         given number of workers
+     */
+    public MctsSettings withWorkers(int workers, Parallelism parallelism) {
+        Preconditions.checkArgument(workers >= 1);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, raveEquivalence, rolloutPolicy, earlyStop,
+                priors, leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @param size
+     *            (int): number of entries of the table, rounded up to a power
+     *            of 2, at most MAX_TRANSPOSITION_TABLE_SIZE
+     * @return (MctsSettings): these settings, with the nodes reaching the same
+     *         state by different orders of cards sharing their statistics
+     *         through a transposition table of the given size, kept for the
+     *         whole turn. The search is then no longer reproducible if it is
+     *         spread over several workers
+     */
+    public MctsSettings withTranspositionTable(int size) {
+        Preconditions.checkArgument(
+                size > 0 && size <= MAX_TRANSPOSITION_TABLE_SIZE);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                size, endgameCards, informationSets, ponderingIterations,
+                raveEquivalence, rolloutPolicy, earlyStop, priors,
+                leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @param cards
+     *            (int): number of unplayed cards, between 1 and
+     *            MAX_ENDGAME_CARDS, from which the end of the turn is solved
+     * @return (MctsSettings): these settings, with the simulated turns
+     *         finished with the rollout policy only until the given number
+     *         of cards remain to be played, then solved exactly for a random
+     *         deal of the hidden cards
+     */
+    public MctsSettings withEndgameSolver(int cards) {
+        Preconditions.checkArgument(cards > 0 && cards <= MAX_ENDGAME_CARDS);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, cards, informationSets,
+                ponderingIterations, raveEquivalence, rolloutPolicy, earlyStop,
+                priors, leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @return (MctsSettings): these settings, with each simulated turn played
+     *         on a random deal of the hidden cards respecting the number of
+     *         cards of each player, the nodes of the tree standing for what
+     *         the player knows of the state (information set MCTS). The
+     *         workers must then search independent trees
+     */
+    public MctsSettings withInformationSets() {
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, true, ponderingIterations,
+                raveEquivalence, rolloutPolicy, earlyStop, priors,
+                leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @param iterations
+     *            (int): maximal number of turns simulated from the state of
+     *            the turn before this player has to play again
+     * @return (MctsSettings): these settings, with the search going on in the
+     *         background while the other players play, following the cards
+     *         they play, so that the next search starts with the turns
+     *         already simulated. The search is then no longer reproducible
+     */
+    public MctsSettings withPondering(int iterations) {
+        Preconditions.checkArgument(iterations > 0);
+        return new MctsSettings(this.iterations, timeBudget, workers,
+                parallelism, transpositionTableSize, endgameCards,
+                informationSets, iterations, raveEquivalence, rolloutPolicy,
+                earlyStop, priors, leafEvaluator, evaluationDepth,
+                maxTreeSize);
+    }
+
+    /**
+     * @param equivalence
+     *            (int): number of turns simulated through a node for which its
+     *            own average counts as much as the average of all moves as
+     *            first, the greater the longer the latter is trusted
+     * @return (MctsSettings): these settings, with the average points of each
+     *         node blended with those of all the simulated turns in which its
+     *         card is played later by the same player (RAVE), whose weight
+     *         decreases as the node is simulated
+     */
+    public MctsSettings withRave(int equivalence) {
+        Preconditions.checkArgument(equivalence > 0);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, equivalence, rolloutPolicy, earlyStop,
+                priors, leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @param policy
+     *            (RolloutPolicy): policy choosing the cards played once a
+     *            simulated turn leaves the tree, instead of UNIFORM
+     * @return (MctsSettings): these settings, with the simulated turns
+     *         finished with the given policy
+     */
+    public MctsSettings withRolloutPolicy(RolloutPolicy policy) {
+        Preconditions.checkArgument(policy != null);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, raveEquivalence, policy, earlyStop, priors,
+                leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @return (MctsSettings): these settings, with the card played being the
+     *         most simulated one instead of the best one on average, and the
+     *         search stopping as soon as it leads the other cards by more
+     *         turns than are left to simulate, those left to a timed search
+     *         being estimated from the time left
+     */
+    public MctsSettings withEarlyStop() {
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, raveEquivalence, rolloutPolicy, true,
+                priors, leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @return (MctsSettings): these settings, with the cards tried according
+     *         to a heuristic prior of being the best one (taking the trick,
+     *         points, trumps): the most likely cards are tried first, the
+     *         others only as the state is simulated, and they are explored in
+     *         proportion to their priors (PUCT). The search must then not
+     *         search information sets
+     */
+    public MctsSettings withPriors() {
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, raveEquivalence, rolloutPolicy, earlyStop,
+                true, leafEvaluator, evaluationDepth, maxTreeSize);
+    }
+
+    /**
+     * @param evaluator
+     *            (LinearValueFunction): function estimating the share of the
+     *            points left won by each team
+     * @param depth
+     *            (int): number of cards played by the rollout policy once a
+     *            simulated turn leaves the tree, before the end of the turn
+     *            is estimated
+     * @return (MctsSettings): these settings, with the simulated turns cut
+     *         after the given number of cards and their end estimated by the
+     *         given function, unless the endgame solver can solve it
+     */
+    public MctsSettings withLeafEvaluator(LinearValueFunction evaluator,
+            int depth) {
+        Preconditions.checkArgument(evaluator != null && depth >= 0);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, raveEquivalence, rolloutPolicy, earlyStop,
+                priors, evaluator, depth, maxTreeSize);
+    }
+
+    /**
+     * @param nodes
+     *            (int): maximal number of nodes of each tree, at least
+     *            MIN_TREE_SIZE. A node takes about 90 bytes
+     * @return (MctsSettings): these settings, with the trees no longer
+     *         growing once they hold the given number of nodes, and the
+     *         subtrees simulated the least released between two slices of
+     *         the search to make room for new nodes, so that any number of
+     *         iterations can be done in bounded memory
+     */
+    public MctsSettings withMaxTreeSize(int nodes) {
+        Preconditions.checkArgument(nodes >= MIN_TREE_SIZE);
+        return new MctsSettings(iterations, timeBudget, workers, parallelism,
+                transpositionTableSize, endgameCards, informationSets,
+                ponderingIterations, raveEquivalence, rolloutPolicy, earlyStop,
+                priors, leafEvaluator, evaluationDepth, nodes);
+    }
+
+    /**
+     * @return (int): number of turns to simulate, or minimal number of turns
+     *         to simulate if the search is timed
+     */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return (boolean): whether the search goes on until a time budget has
+     *         elapsed
+     */
+    public boolean isTimed() {
+        return timeBudget > 0;
+    }
+
+    /**
+     * @return (long): time budget of the search in milliseconds, 0 if the
+     *         search is not timed
+     */
+    public long timeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * @return (int): number of workers searching in parallel
+     */
+    public int workers() {
+        return workers;
+    }
+
+    /**
+     * @return (Parallelism): how the search is spread over the workers
+     */
+    public Parallelism parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return (int): number of entries of the transposition table, 0 if there
+     *         is none
+     */
+    public int transpositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    /**
+     * @return (int): number of unplayed cards from which the end of the turn
+     *         is solved exactly, 0 if it is never solved
+     */
+    public int endgameCards() {
+        return endgameCards;
+    }
+
+    /**
+     * @return (boolean): whether each simulated turn is played on a random
+     *         deal of the hidden cards
+     */
+    public boolean searchesInformationSets() {
+        return informationSets;
+    }
+
+    /**
+     * @return (boolean): whether the search goes on in the background while
+     *         the other players play
+     */
+    public boolean ponders() {
+        return ponderingIterations > 0;
+    }
+
+    /**
+     * @return (int): maximal number of turns simulated in the background from
+     *         the state of the turn, 0 if the search does not go on in the
+     *         background
+     */
+    public int ponderingIterations() {
+        return ponderingIterations;
+    }
+
+    /**
+     * @return (int): number of turns simulated through a node for which its
+     *         own average counts as much as the average of all moves as
+     *         first, 0 without RAVE
+     */
+    public int raveEquivalence() {
+        return raveEquivalence;
+    }
+
+    /**
+     * @return (RolloutPolicy): policy choosing the cards played once a
+     *         simulated turn leaves the tree
+     */
+    public RolloutPolicy rolloutPolicy() {
+        return rolloutPolicy;
+    }
+
+    /**
+     * @return (boolean): whether the card played is the most simulated one,
+     *         and the search stops once it can no longer change
+     */
+    public boolean stopsEarly() {
+        return earlyStop;
+    }
+
+    /**
+     * @return (boolean): whether the cards are tried according to their
+     *         priors
+     */
+    public boolean usesPriors() {
+        return priors;
+    }
+
+    /**
+     * @return (LinearValueFunction): function estimating the end of the
+     *         simulated turns, null if they are played until the end
+     */
+    public LinearValueFunction leafEvaluator() {
+        return leafEvaluator;
+    }
+
+    /**
+     * @return (int): number of cards played by the rollout policy before the
+     *         end of a simulated turn is estimated
+     */
+    public int evaluationDepth() {
+        return evaluationDepth;
+    }
+
+    /**
+     * @return (int): maximal number of nodes of each tree, 0 if the trees
+     *         are not bounded
+     */
+    public int maxTreeSize() {
+        return maxTreeSize;
+    }
+}
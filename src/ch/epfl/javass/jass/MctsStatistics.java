@@ -0,0 +1,194 @@
+package ch.epfl.javass.jass;
+
+/**
+ * Statistics of the search made by an MctsPlayer to choose a card
+ * 
+ * @author Yingxuan Duan (282512)
+ *
+ */
+public final class MctsStatistics {
+
+    /*
+     * Number of turns simulated during the search, and number of turns
+     * simulated before it from the state of the turn, by the searches for
+     * the previous cards or in the background, whose statistics were reused
+     */
+    private final long iterations;
+    private final int reusedIterations;
+    /*
+     * Duration of the search in nanoseconds
+     */
+    private final long nanos;
+    /*
+     * Number of nodes in the tree(s) at the end of the search
+     */
+    private final int nodes;
+    /*
+     * Number of states looked up in the transposition table during the
+     * search, and of those which were already in it
+     */
+    private final long tableLookups;
+    private final long tableHits;
+    /*
+     * Number of turns which were not simulated, as the card to play was
+     * forced or already decided
+     */
+    private final long iterationsSaved;
+    /*
+     * Number of nodes released during the search to bound the size of the
+     * tree(s), and greatest number of nodes they held
+     */
+    private final long prunedNodes;
+    private final int peakNodes;
+
+    /**
+     * Creates the statistics of a search
+     * 
+     * @param iterations
+     *            (long): number of turns simulated during the search
+     * @param reusedIterations
+     *            (int): number of turns simulated from the state of the turn
+     *            before the search, whose statistics were reused
+     * @param nanos
+     *            (long): duration of the search in nanoseconds
+     * @param nodes
+     *            (int): number of nodes in the tree(s) at the end of the
+     *            search
+     * @param tableLookups
+     *            (long): number of states looked up in the transposition
+     *            table, 0 if there is none
+     * @param tableHits
+     *            (long): number of states looked up which were already in the
+     *            transposition table
+     * @param iterationsSaved
+     *            (long): number of turns which were not simulated, as the
+     *            card to play was forced or already decided
+     * @param prunedNodes
+     *            (long): number of nodes released during the search to bound
+     *            the size of the tree(s)
+     * @param peakNodes
+     *            (int): greatest number of nodes in the tree(s) during the
+     *            search
+     */
+    MctsStatistics(long iterations, int reusedIterations, long nanos,
+            int nodes, long tableLookups, long tableHits, long iterationsSaved,
+            long prunedNodes, int peakNodes) {
+        this.iterations = iterations;
+        this.reusedIterations = reusedIterations;
+        this.nanos = nanos;
+        this.nodes = nodes;
+        this.tableLookups = tableLookups;
+        this.tableHits = tableHits;
+        this.iterationsSaved = iterationsSaved;
+        this.prunedNodes = prunedNodes;
+        this.peakNodes = peakNodes;
+    }
+
+    /**
+     * @return (long): number of turns simulated during the search
+     */
+    public long iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return (int): number of turns simulated from the state of the turn
+     *         before the search, by the searches for the previous cards or in
+     *         the background, whose statistics were reused
+     */
+    public int reusedIterations() {
+        return reusedIterations;
+    }
+
+    /**
+     * @return (long): duration of the search in nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * @return (int): number of nodes in the tree(s) at the end of the search
+     */
+    public int nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return (long): number of states looked up in the transposition table
+     *         during the search, 0 if there is none
+     */
+    public long tableLookups() {
+        return tableLookups;
+    }
+
+    /**
+     * @return (long): number of states looked up during the search which were
+     *         already in the transposition table
+     */
+    public long tableHits() {
+        return tableHits;
+    }
+
+    /**
+     * @return (double): proportion of the states looked up during the search
+     *         which were already in the transposition table
+     */
+    public double tableHitRate() {
+        return tableLookups == 0 ? 0 : (double) tableHits / tableLookups;
+    }
+
+    /**
+     * @return (long): number of turns which were not simulated, as the card
+     *         to play was forced or already decided, those of a timed search
+     *         being estimated from the time left
+     */
+    public long iterationsSaved() {
+        return iterationsSaved;
+    }
+
+    /**
+     * @return (long): number of nodes released during the search to bound the
+     *         size of the tree(s)
+     */
+    public long prunedNodes() {
+        return prunedNodes;
+    }
+
+    /**
+     * @return (int): greatest number of nodes in the tree(s) during the
+     *         search
+     */
+    public int peakNodes() {
+        return peakNodes;
+    }
+
+    /**
+     * @return (double): throughput of the search, in turns simulated per
+     *         second
+     */
+    public double iterationsPerSecond() {
+        return nanos == 0 ? 0 : iterations * 1e9 / nanos;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        String s = iterations + " itérations en " + nanos / 1_000_000
+                + " ms (" + Math.round(iterationsPerSecond())
+                + " itérations/s), " + nodes + " nœuds";
+        if (reusedIterations > 0)
+            s += ", " + reusedIterations + " itérations réutilisées";
+        if (tableLookups > 0)
+            s += ", " + Math.round(100 * tableHitRate())
+                    + " % de transpositions";
+        if (iterationsSaved > 0)
+            s += ", " + iterationsSaved + " itérations économisées";
+        if (prunedNodes > 0)
+            s += ", " + prunedNodes + " nœuds élagués (maximum "
+                    + peakNodes + ")";
+        return s;
+    }
+}
@@ -0,0 +1,1406 @@
+package ch.epfl.javass.jass;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A tree of the Monte Carlo tree search, whose nodes are stored in parallel
+ * arrays of primitives (an arena) indexed by node, which are reused from one
+ * search to the next. The arena only grows between two calls to search, so
+ * that the workers of a shared tree never see it move. The children of a node
+ * are chained: the node knows its first child, and each child knows its next
+ * sibling. A tree may be bounded: its arena then never grows beyond a given
+ * number of nodes, no node is added once it is full, and between two searches
+ * the subtrees simulated the least are released to make room for new nodes.
+ * <p>
+ * If the tree is determinized, each simulated turn first deals the hidden
+ * cards at random, and only goes through the children whose card can be
+ * played in that deal. A node then stands for all the states the player
+ * searching the tree cannot tell apart (an information set), and its
+ * statistics are shared by all the deals going through it.
+ * <p>
+ * With RAVE (rapid action value estimation), each node also keeps the
+ * results of all the simulated turns in which its card was played, later on,
+ * by the same player as in the node (all moves as first). Early on, these
+ * numerous but biased results stand in for the few results of the node.
+ * <p>
+ * With priors, each child gets the prior probability of its card being the
+ * best, given by a heuristic. The children are then created from the most to
+ * the least likely card, only as the parent is simulated (progressive
+ * widening), and chosen by the PUCT formula, which explores them in
+ * proportion to their priors
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class MctsTree {
+
+    /*
+     * Index standing for the absence of a node
+     */
+    private static final int NONE = -1;
+    /*
+     * Maximal length of a path from the root, one node per card of a turn
+     */
+    private static final int MAX_DEPTH = Jass.TRICKS_PER_TURN
+            * PlayerId.COUNT;
+    private static final int EMPIRICAL_CONSTANT = 40;
+    /*
+     * Number of turns temporarily added to a node of a shared tree while a
+     * worker simulates a turn through it, so that the other workers prefer
+     * other paths
+     */
+    private static final int VIRTUAL_LOSS = 1;
+    /*
+     * Constant of the exploration term of the PUCT formula, weighting the
+     * priors of the children
+     */
+    private static final int PUCT_CONSTANT = 400;
+
+    /*
+     * Handles used by the workers of a shared tree to update the arrays and
+     * the size atomically
+     */
+    private static final VarHandle INT_ELEMENT = MethodHandles
+            .arrayElementVarHandle(int[].class);
+    private static final VarHandle LONG_ELEMENT = MethodHandles
+            .arrayElementVarHandle(long[].class);
+    private static final VarHandle SIZE;
+
+    static {
+        try {
+            SIZE = MethodHandles.lookup().findVarHandle(MctsTree.class, "size",
+                    int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+
+    /*
+     * Id of the player searching the tree
+     */
+    private final PlayerId ownId;
+    /*
+     * Whether the tree is searched by several workers at once
+     */
+    private final boolean shared;
+    /*
+     * Table through which the nodes share their statistics with the nodes of
+     * the same state, null if the nodes only use their own statistics
+     */
+    private final TranspositionTable table;
+    /*
+     * Whether each simulated turn is played on a random deal of the hidden
+     * cards
+     */
+    private final boolean determinized;
+    /*
+     * Number of turns simulated through a node for which its own average
+     * counts as much as the average of all moves as first, 0 without RAVE
+     */
+    private final int raveEquivalence;
+    /*
+     * Policy choosing the cards played once a simulated turn leaves the tree
+     */
+    private final RolloutPolicy policy;
+    /*
+     * Whether the children are created and chosen according to their priors
+     */
+    private final boolean usesPriors;
+    /*
+     * Function estimating the end of the simulated turns, null if they are
+     * played until the end, and number of cards played before it is used
+     */
+    private final LinearValueFunction evaluator;
+    private final int evaluationDepth;
+    /*
+     * Maximal number of nodes of the tree, 0 if it is not bounded
+     */
+    private final int maxSize;
+    /*
+     * Packed set of the cards each player may hold, indexed by the ordinal of
+     * its id, that of the player searching the tree being its hand
+     */
+    private final long[] possibleCards = new long[PlayerId.COUNT];
+    /*
+     * Index of the root, and number of nodes in the arena
+     */
+    private int root;
+    private int size;
+
+    /*
+     * Packed score, unplayed cards and trick of the state of each node
+     */
+    private long[] scores;
+    private long[] unplayedCards;
+    private int[] tricks;
+    /*
+     * Total points gained by the team who played the last card of the node's
+     * trick, and total number of turns simulated using the node
+     */
+    private long[] totalPoints;
+    private int[] totalTurns;
+    /*
+     * First child and next sibling of each node, NONE if there is none
+     */
+    private int[] firstChild;
+    private int[] nextSibling;
+    /*
+     * The set of cards corresponding to each node's inexistent child nodes
+     */
+    private long[] inexistentChildNodes;
+    /*
+     * Number of simulated turns in which each node could be chosen among its
+     * siblings, only used if the tree is determinized
+     */
+    private int[] availability;
+    /*
+     * Total points gained by the team who played the last card of the node's
+     * trick, and number of simulated turns, in the turns in which that card
+     * was played by the same player after the node's parent, only used with
+     * RAVE
+     */
+    private long[] ravePoints;
+    private int[] raveTurns;
+    /*
+     * Prior probability of the card of each node being the best one to play
+     * in its parent, only used with priors
+     */
+    private double[] priors;
+    /*
+     * Zobrist hash of the state of each node, and its entry in the
+     * transposition table, only used if there is a table
+     */
+    private long[] hashes;
+    private int[] entries;
+    /*
+     * New index of each node while the arena is compacted
+     */
+    private int[] forward;
+
+    /**
+     * Creates an empty tree
+     *
+     * @param ownId
+     *            (PlayerId): Id of the player searching the tree
+     * @param shared
+     *            (boolean): whether the tree is searched by several workers
+     *            at once
+     * @param table
+     *            (TranspositionTable): table through which the nodes share
+     *            their statistics, null if there is none
+     * @param determinized
+     *            (boolean): whether each simulated turn is played on a random
+     *            deal of the hidden cards, in which case the tree must not be
+     *            shared
+     * @param raveEquivalence
+     *            (int): number of turns simulated through a node for which
+     *            its own average counts as much as the average of all moves
+     *            as first, 0 without RAVE
+     * @param policy
+     *            (RolloutPolicy): policy choosing the cards played once a
+     *            simulated turn leaves the tree
+     * @param usesPriors
+     *            (boolean): whether the children are created and chosen
+     *            according to their priors, in which case the tree must not
+     *            be determinized
+     * @param evaluator
+     *            (LinearValueFunction): function estimating the end of the
+     *            simulated turns, null if they are played until the end
+     * @param evaluationDepth
+     *            (int): number of cards played by the rollout policy before
+     *            the end of a simulated turn is estimated
+     * @param maxSize
+     *            (int): maximal number of nodes of the tree, 0 if it is not
+     *            bounded
+     */
+    MctsTree(PlayerId ownId, boolean shared, TranspositionTable table,
+            boolean determinized, int raveEquivalence, RolloutPolicy policy,
+            boolean usesPriors, LinearValueFunction evaluator,
+            int evaluationDepth, int maxSize) {
+        assert !(shared && determinized);
+        assert !(determinized && usesPriors);
+
+        this.ownId = ownId;
+        this.shared = shared;
+        this.table = table;
+        this.determinized = determinized;
+        this.raveEquivalence = raveEquivalence;
+        this.policy = policy;
+        this.usesPriors = usesPriors;
+        this.evaluator = evaluator;
+        this.evaluationDepth = evaluationDepth;
+        this.maxSize = maxSize;
+        this.root = NONE;
+
+        scores = new long[0];
+        unplayedCards = new long[0];
+        tricks = new int[0];
+        totalPoints = new long[0];
+        totalTurns = new int[0];
+        firstChild = new int[0];
+        nextSibling = new int[0];
+        inexistentChildNodes = new long[0];
+        availability = new int[0];
+        ravePoints = new long[0];
+        raveTurns = new int[0];
+        priors = new double[0];
+        hashes = new long[0];
+        entries = new int[0];
+        forward = new int[0];
+    }
+
+    /**
+     * Empties the tree and creates its root, reusing the arena of the previous
+     * search
+     *
+     * @param state
+     *            (TurnState): state of the root, in which it is the turn of
+     *            the player searching the tree
+     * @param knowledge
+     *            (CardKnowledge): what the player searching the tree knows of
+     *            the hands
+     */
+    void reset(TurnState state, CardKnowledge knowledge) {
+        know(knowledge);
+        size = 0;
+        ensureCapacity(1);
+        root = newNode(state.packedScore(), state.packedUnplayedCards(),
+                state.packedTrick(), state.zobristHash());
+    }
+
+    /**
+     * Grows the arena if needed, so that it can hold the given number of new
+     * nodes, or as many as the bound of the tree allows. Must not be called
+     * while the tree is being searched
+     *
+     * @param nodes
+     *            (int): number of nodes which will be added, a simulated turn
+     *            adds at most one node to the tree
+     */
+    void ensureCapacity(int nodes) {
+        if (size + nodes <= scores.length)
+            return;
+
+        int capacity = Math.max(size + nodes, 2 * scores.length);
+        if (maxSize > 0)
+            capacity = Math.min(capacity, maxSize);
+        if (capacity <= scores.length)
+            return;
+        scores = Arrays.copyOf(scores, capacity);
+        unplayedCards = Arrays.copyOf(unplayedCards, capacity);
+        tricks = Arrays.copyOf(tricks, capacity);
+        totalPoints = Arrays.copyOf(totalPoints, capacity);
+        totalTurns = Arrays.copyOf(totalTurns, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        inexistentChildNodes = Arrays.copyOf(inexistentChildNodes, capacity);
+        availability = Arrays.copyOf(availability, capacity);
+        ravePoints = Arrays.copyOf(ravePoints, capacity);
+        raveTurns = Arrays.copyOf(raveTurns, capacity);
+        priors = Arrays.copyOf(priors, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        entries = Arrays.copyOf(entries, capacity);
+    }
+
+    /**
+     * If the tree is bounded and could not hold the given number of new nodes,
+     * releases the nodes which are not in the subtree of the root, then the
+     * nodes simulated the least, so that about half of the bound is left
+     * free. The children of the root are always kept, and the cards of the
+     * released children can be tried again later. Must not be called while
+     * the tree is being searched
+     *
+     * @param nodes
+     *            (int): number of nodes which will be added
+     * @return (int): number of nodes released
+     */
+    int prune(int nodes) {
+        if (maxSize == 0 || size + nodes <= maxSize)
+            return 0;
+
+        // counts the nodes of the subtree of the root by number of bits of
+        // their turns, a node never being simulated more than its parent
+        int[] counts = new int[Integer.SIZE];
+        mark(0);
+        for (int node = root + 1; node < size; node++) {
+            if (forward[node] != NONE)
+                counts[Integer.SIZE
+                        - Integer.numberOfLeadingZeros(totalTurns[node])]++;
+        }
+
+        // keeps the nodes whose turns have at least the given number of bits,
+        // the fewest bits leaving half of the bound free
+        int bits = Integer.SIZE;
+        int kept = 0;
+        while (bits > 0 && kept + counts[bits - 1] <= maxSize / 2)
+            kept += counts[--bits];
+
+        int oldSize = size;
+        compact(bits == 0 ? 0
+                : (int) Math.min(Integer.MAX_VALUE, 1L << (bits - 1)));
+        return oldSize - size;
+    }
+
+    /**
+     * Simulates the given number of turns from the root. If the tree is
+     * shared, several workers may call this method at once, each with its own
+     * RNG
+     *
+     * @param iterations
+     *            (int): number of turns to simulate
+     * @param rng
+     *            (SplittableRandom): RNG used to deal the hidden cards and to
+     *            finish the turns
+     * @param solver
+     *            (EndgameSolver): solver finishing the turns of this worker,
+     *            null if they are only finished with the rollout policy
+     */
+    void search(int iterations, SplittableRandom rng, EndgameSolver solver) {
+        int[] path = new int[MAX_DEPTH];
+        long[] hands = new long[PlayerId.COUNT];
+        // cards played by each player after the path, only used with RAVE
+        long[] played = raveEquivalence > 0 ? new long[PlayerId.COUNT]
+                : null;
+        double[] features = evaluator != null
+                ? new double[LinearValueFunction.FEATURES]
+                : null;
+
+        for (int i = 0; i < iterations; i++) {
+            int length;
+            long finalScore;
+            if (determinized) {
+                DealSampler.sample(unplayedCards[root], tricks[root], ownId,
+                        possibleCards, rng, hands);
+                length = findDeterminizedPath(path, hands);
+                // the rest of each hand is played after the path
+                if (played != null)
+                    System.arraycopy(hands, 0, played, 0, PlayerId.COUNT);
+                finalScore = determinizedRollout(path, length, hands, rng,
+                        solver, features);
+                backPropagate(path, length, finalScore);
+            } else if (!shared) {
+                if (played != null)
+                    Arrays.fill(played, PackedCardSet.EMPTY);
+                length = findPath(path);
+                finalScore = rollout(path, length, rng, solver, played,
+                        features);
+                backPropagate(path, length, finalScore);
+            } else {
+                if (played != null)
+                    Arrays.fill(played, PackedCardSet.EMPTY);
+                INT_ELEMENT.getAndAdd(totalTurns, root, 1);
+                length = findSharedPath(path);
+                finalScore = rollout(path, length, rng, solver, played,
+                        features);
+                backPropagateShared(path, length, finalScore);
+            }
+            if (played != null)
+                backPropagateRave(path, length, finalScore, played);
+        }
+    }
+
+    /**
+     * @return (int): number of turns simulated from the root
+     */
+    int iterations() {
+        return totalTurns[root];
+    }
+
+    /**
+     * @return (boolean): whether the tree has a root, which it loses when the
+     *         cards played are not in it
+     */
+    boolean hasRoot() {
+        return root != NONE;
+    }
+
+    /**
+     * @return (int): number of nodes in the tree
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Moves the root down to the node reached by playing the cards of the
+     * given trick which have not been played yet in the root's state, so that
+     * its subtree can be reused by the next search. If that node is not in
+     * the tree, the tree is dropped
+     *
+     * @param pkTrick
+     *            (int): packed trick of the current state of the turn
+     */
+    void advance(int pkTrick) {
+        if (root == NONE)
+            return;
+
+        // number of cards of the given trick already played in the root
+        int rootTrick = tricks[root];
+        int played;
+        if (PackedTrick.index(pkTrick) == PackedTrick.index(rootTrick))
+            played = PackedTrick.size(rootTrick);
+        else if (PackedTrick.isFull(rootTrick)
+                && PackedTrick.index(pkTrick) == PackedTrick.index(rootTrick)
+                        + 1)
+            played = 0;
+        else {
+            root = NONE;
+            return;
+        }
+
+        // the cards already played must be the same
+        if (PackedTrick.size(pkTrick) < played) {
+            root = NONE;
+            return;
+        }
+        for (int i = 0; i < played; i++) {
+            if (PackedTrick.card(pkTrick, i) != PackedTrick.card(rootTrick,
+                    i)) {
+                root = NONE;
+                return;
+            }
+        }
+
+        for (int i = played; i < PackedTrick.size(pkTrick) && root != NONE;
+                i++)
+            root = child(root, PackedTrick.card(pkTrick, i));
+    }
+
+    /**
+     * Keeps the subtree of the root, with its statistics, if the root's state
+     * is the given state, and releases the rest of the arena
+     *
+     * @param state
+     *            (TurnState): current state of the turn, in which it is the
+     *            turn of the player searching the tree
+     * @param knowledge
+     *            (CardKnowledge): what the player searching the tree knows of
+     *            the hands
+     * @return (boolean): whether the subtree of the root has been kept,
+     *         otherwise the tree must be reset
+     */
+    boolean reuse(TurnState state, CardKnowledge knowledge) {
+        if (root == NONE)
+            return false;
+
+        // the root's trick is not collected yet if it has just been completed
+        long score = scores[root];
+        int trick = tricks[root];
+        if (PackedTrick.isFull(trick)) {
+            score = PackedScore.withAdditionalTrick(score,
+                    PackedTrick.winningPlayer(trick).team(),
+                    PackedTrick.points(trick));
+            trick = PackedTrick.nextEmpty(trick);
+        }
+        if (score != state.packedScore()
+                || unplayedCards[root] != state.packedUnplayedCards()
+                || trick != state.packedTrick())
+            return false;
+
+        // the nodes created before are kept even if what is known of the
+        // hands now excludes their cards
+        know(knowledge);
+        compact(0);
+        return true;
+    }
+
+    /**
+     * Chooses the card to play according to several trees searched from the
+     * same state, whose statistics are added up
+     *
+     * @param trees
+     *            (MctsTree[]): trees searched independently from the same
+     *            state
+     * @param mostSimulated
+     *            (boolean): whether the card is the most simulated one, as
+     *            when the search may stop early, instead of the best one on
+     *            average
+     * @return (Card): the card leading to the children of the roots with the
+     *         highest average points, or with the most simulated turns
+     */
+    static Card bestCard(MctsTree[] trees, boolean mostSimulated) {
+        return Card.ofPacked(mostSimulated ? mostSimulatedCard(trees)
+                : bestAverageCard(trees));
+    }
+
+    /**
+     * Tells whether the most simulated card, chosen by bestCard when the
+     * search may stop early, can no longer change, the turns left being
+     * simulated: it must lead the other children of the roots by more turns
+     * than are left, so that none of them can catch up with it
+     *
+     * @param trees
+     *            (MctsTree[]): trees searched independently from the same
+     *            state
+     * @param iterationsLeft
+     *            (long): total number of turns left to simulate in the trees
+     * @return (boolean): whether the card to play is decided
+     */
+    static boolean isDecided(MctsTree[] trees, long iterationsLeft) {
+        long maxTurns = 0;
+        long secondTurns = 0;
+
+        for (long cards = rootCards(trees); cards != PackedCardSet.EMPTY;
+                cards = PackedCardSet.withoutLowestCard(cards)) {
+            long turns = turns(trees, PackedCardSet.lowestCard(cards));
+            if (turns > maxTurns) {
+                secondTurns = maxTurns;
+                maxTurns = turns;
+            } else
+                secondTurns = Math.max(secondTurns, turns);
+        }
+        // the cards without children yet have not been simulated
+        return maxTurns - secondTurns > iterationsLeft;
+    }
+
+    /*
+     * @return (int): the packed card of the children of the roots with the
+     * most simulated turns, the oldest one in case of a tie
+     */
+    private static int mostSimulatedCard(MctsTree[] trees) {
+        long maxTurns = 0;
+        int bestCard = PackedCard.INVALID;
+        long seen = PackedCardSet.EMPTY;
+
+        // the children are chained from the most recent one, the cards being
+        // taken in the order of the first tree having them
+        for (MctsTree tree : trees) {
+            for (int child = tree.firstChild[tree.root]; child != NONE;
+                    child = tree.nextSibling[child]) {
+                int card = tree.card(child);
+                if (PackedCardSet.contains(seen, card))
+                    continue;
+                seen = PackedCardSet.add(seen, card);
+
+                long turns = turns(trees, card);
+                if (bestCard == PackedCard.INVALID || turns >= maxTurns) {
+                    maxTurns = turns;
+                    bestCard = card;
+                }
+            }
+        }
+        return bestCard;
+    }
+
+    /*
+     * @return (long): packed set of the cards of the children of all the
+     * roots
+     */
+    private static long rootCards(MctsTree[] trees) {
+        long cards = PackedCardSet.EMPTY;
+        for (MctsTree tree : trees) {
+            for (int child = tree.firstChild[tree.root]; child != NONE;
+                    child = tree.nextSibling[child])
+                cards = PackedCardSet.add(cards, tree.card(child));
+        }
+        return cards;
+    }
+
+    /*
+     * @return (long): total number of turns simulated through the children of
+     * the roots reached by the given card
+     */
+    private static long turns(MctsTree[] trees, int card) {
+        long turns = 0;
+        for (MctsTree tree : trees) {
+            int other = tree.child(tree.root, card);
+            if (other != NONE)
+                turns += tree.totalTurns[other];
+        }
+        return turns;
+    }
+
+    /*
+     * @return (int): the packed card of the children of the roots with the
+     * highest average points
+     */
+    private static int bestAverageCard(MctsTree[] trees) {
+        double maxValue = 0;
+        int bestCard = PackedCard.INVALID;
+        long seen = PackedCardSet.EMPTY;
+
+        // the children are chained from the most recent one, so the oldest
+        // one of the first tree having it is kept in case of a tie
+        for (MctsTree tree : trees) {
+            for (int child = tree.firstChild[tree.root]; child != NONE;
+                    child = tree.nextSibling[child]) {
+                int card = tree.card(child);
+                if (PackedCardSet.contains(seen, card))
+                    continue;
+                seen = PackedCardSet.add(seen, card);
+
+                long points = 0;
+                long turns = 0;
+                for (MctsTree other : trees) {
+                    int node = other.child(other.root, card);
+                    if (node != NONE) {
+                        points += other.totalPoints[node];
+                        turns += other.totalTurns[node];
+                    }
+                }
+
+                if (turns <= 0)
+                    return card;
+
+                double value = (double) points / turns;
+                if (bestCard == PackedCard.INVALID || value >= maxValue) {
+                    maxValue = value;
+                    bestCard = card;
+                }
+            }
+        }
+        return bestCard;
+    }
+
+    /*
+     * Adds when possible a new node at the necessary place in the tree, writes
+     * the path from the root (excluded) to the added node in the given array
+     *
+     * @param path (int[]): array in which the path is written
+     *
+     * @return (int): the length of the path
+     */
+    private int findPath(int[] path) {
+        int node = root;
+        int length = 0;
+
+        // while current node has all its children, or all those its priors
+        // allow yet, and bottom of the tree has not been reached
+        while ((PackedCardSet.isEmpty(inexistentChildNodes[node])
+                || (usesPriors && !widens(node)))
+                && firstChild[node] != NONE) {
+            node = usesPriors ? bestPriorChild(node)
+                    : bestChild(node, EMPIRICAL_CONSTANT);
+            path[length++] = node;
+        }
+
+        // if we have reached the bottom of the tree, then return the path
+        // directly
+        long inexistent = inexistentChildNodes[node];
+        if (PackedCardSet.isEmpty(inexistent))
+            return length;
+
+        // if the tree is full, the turn is simulated from the node
+        int card = newChildCard(node, inexistent);
+        int child = addChild(node, card);
+        if (child == NONE)
+            return length;
+
+        inexistentChildNodes[node] = PackedCardSet.remove(inexistent, card);
+        path[length++] = child;
+        return length;
+    }
+
+    /*
+     * Same as findPath, but for a tree shared by several workers: the new
+     * child is claimed by atomically removing its card from the inexistent
+     * child nodes, and a virtual loss is added to every node of the path
+     *
+     * @param path (int[]): array in which the path is written
+     *
+     * @return (int): the length of the path
+     */
+    private int findSharedPath(int[] path) {
+        int node = root;
+        int length = 0;
+
+        while (true) {
+            long inexistent = (long) LONG_ELEMENT
+                    .getVolatile(inexistentChildNodes, node);
+
+            // while some children don't exist, try to claim the first one
+            if (!PackedCardSet.isEmpty(inexistent)
+                    && (!usesPriors || widens(node))) {
+                int card = newChildCard(node, inexistent);
+                if (!LONG_ELEMENT.compareAndSet(inexistentChildNodes, node,
+                        inexistent, PackedCardSet.remove(inexistent, card)))
+                    // another worker claimed a child first, try again
+                    continue;
+
+                int child = addChild(node, card);
+                if (child == NONE) {
+                    // the tree is full, the card is given back
+                    LONG_ELEMENT.getAndBitwiseOr(inexistentChildNodes, node,
+                            PackedCardSet.singleton(card));
+                    return length;
+                }
+                INT_ELEMENT.getAndAdd(totalTurns, child, VIRTUAL_LOSS);
+                path[length++] = child;
+                return length;
+            }
+
+            // bottom of the tree, or all the children are still being
+            // created by other workers
+            int best = usesPriors ? bestPriorChild(node)
+                    : bestChild(node, EMPIRICAL_CONSTANT);
+            if (best == NONE)
+                return length;
+
+            INT_ELEMENT.getAndAdd(totalTurns, best, VIRTUAL_LOSS);
+            path[length++] = best;
+            node = best;
+        }
+    }
+
+    /*
+     * Same as findPath, but for a determinized tree: only the children whose
+     * card can be played in the given deal are considered, and the cards of
+     * the path are removed from the hands of the deal
+     *
+     * @param path (int[]): array in which the path is written
+     *
+     * @param hands (long[]): hand of each player in the deal, indexed by the
+     * ordinal of its id
+     *
+     * @return (int): the length of the path
+     */
+    private int findDeterminizedPath(int[] path, long[] hands) {
+        int node = root;
+        int length = 0;
+
+        while (true) {
+            int trick = tricks[node];
+            if (PackedTrick.isFull(trick)) {
+                if (PackedTrick.isLast(trick))
+                    return length;
+                trick = PackedTrick.nextEmpty(trick);
+            }
+            int player = PackedTrick.player(trick, PackedTrick.size(trick))
+                    .ordinal();
+            long playable = PackedTrick.playableCards(trick, hands[player]);
+
+            // adds a child if one of the playable cards has none yet
+            long inexistent = PackedCardSet.intersection(playable,
+                    inexistentChildNodes[node]);
+            if (!PackedCardSet.isEmpty(inexistent)) {
+                int card = PackedCardSet.get(inexistent, 0);
+                int child = addChild(node, card);
+                if (child == NONE)
+                    return length;
+
+                inexistentChildNodes[node] = PackedCardSet
+                        .remove(inexistentChildNodes[node], card);
+                availability[child]++;
+                hands[player] = PackedCardSet.remove(hands[player], card);
+                path[length++] = child;
+                return length;
+            }
+
+            node = bestAvailableChild(node, playable, EMPIRICAL_CONSTANT);
+            hands[player] = PackedCardSet.remove(hands[player], card(node));
+            path[length++] = node;
+        }
+    }
+
+    /*
+     * Finishes the turn of the last node of the path for the given deal,
+     * whose hands no longer hold the cards of the path, with the rollout
+     * policy, helped by the given solver if it is not null. With an
+     * evaluator, the end of the turn is estimated once evaluationDepth cards
+     * have been played, unless the solver can solve it
+     *
+     * @return (long): final score of the turn
+     */
+    private long determinizedRollout(int[] path, int length, long[] hands,
+            SplittableRandom rng, EndgameSolver solver, double[] features) {
+        int leaf = length == 0 ? root : path[length - 1];
+        if (evaluator != null) {
+            long pkScore = scores[leaf];
+            int pkTrick = tricks[leaf];
+            for (int i = 0; i < evaluationDepth
+                    && pkTrick != PackedTrick.INVALID; i++) {
+                if (PackedTrick.isFull(pkTrick)) {
+                    pkScore = PackedScore.withAdditionalTrick(pkScore,
+                            PackedTrick.winningPlayer(pkTrick).team(),
+                            PackedTrick.points(pkTrick));
+                    pkTrick = PackedTrick.nextEmpty(pkTrick);
+                    if (pkTrick == PackedTrick.INVALID)
+                        break;
+                }
+                pkTrick = PackedTrick.withAddedCard(pkTrick,
+                        PackedRollout.rolloutCard(pkTrick, hands, policy, rng));
+            }
+            long pkUnplayed = PackedCardSet.EMPTY;
+            for (long hand : hands)
+                pkUnplayed = PackedCardSet.union(pkUnplayed, hand);
+
+            if (solver != null
+                    && PackedCardSet.size(pkUnplayed) <= solver.cards())
+                return solver.finishTurn(pkScore, pkTrick, hands, policy, rng);
+            if (pkTrick == PackedTrick.INVALID)
+                return pkScore;
+            return evaluator.finalScore(pkScore, pkUnplayed, pkTrick, ownId,
+                    hands[ownId.ordinal()], features);
+        }
+        if (solver != null)
+            return solver.finishTurn(scores[leaf], tricks[leaf], hands,
+                    policy, rng);
+        return PackedRollout.finishTurn(scores[leaf], tricks[leaf], hands,
+                policy, rng);
+    }
+
+    /*
+     * Finishes the turn of the last node of the path with the rollout policy,
+     * helped by the given solver if it is not null, adding the cards played
+     * by each player to the given array if it is not null. With an evaluator,
+     * the end of the turn is estimated once evaluationDepth cards have been
+     * played, unless the solver can solve it
+     *
+     * @return (long): final score of the turn
+     */
+    private long rollout(int[] path, int length, SplittableRandom rng,
+            EndgameSolver solver, long[] played, double[] features) {
+        int leaf = length == 0 ? root : path[length - 1];
+        if (evaluator != null) {
+            long pkScore = scores[leaf];
+            long pkUnplayed = unplayedCards[leaf];
+            int pkTrick = tricks[leaf];
+            for (int i = 0; i < evaluationDepth
+                    && pkTrick != PackedTrick.INVALID; i++) {
+                if (PackedTrick.isFull(pkTrick)) {
+                    pkScore = PackedScore.withAdditionalTrick(pkScore,
+                            PackedTrick.winningPlayer(pkTrick).team(),
+                            PackedTrick.points(pkTrick));
+                    pkTrick = PackedTrick.nextEmpty(pkTrick);
+                    if (pkTrick == PackedTrick.INVALID)
+                        break;
+                }
+                int card = PackedRollout.rolloutCard(pkUnplayed, pkTrick,
+                        ownId, possibleCards, policy, rng);
+                if (played != null) {
+                    int player = PackedTrick
+                            .player(pkTrick, PackedTrick.size(pkTrick))
+                            .ordinal();
+                    played[player] = PackedCardSet.add(played[player], card);
+                }
+                pkUnplayed = PackedCardSet.remove(pkUnplayed, card);
+                pkTrick = PackedTrick.withAddedCard(pkTrick, card);
+            }
+
+            if (solver != null
+                    && PackedCardSet.size(pkUnplayed) <= solver.cards())
+                return solver.finishTurn(pkScore, pkUnplayed, pkTrick, ownId,
+                        possibleCards, policy, rng, played);
+            if (pkTrick == PackedTrick.INVALID)
+                return pkScore;
+            return evaluator.finalScore(pkScore, pkUnplayed, pkTrick, ownId,
+                    PackedCardSet.intersection(pkUnplayed,
+                            possibleCards[ownId.ordinal()]),
+                    features);
+        }
+        if (solver != null)
+            return solver.finishTurn(scores[leaf], unplayedCards[leaf],
+                    tricks[leaf], ownId, possibleCards, policy, rng, played);
+        return PackedRollout.finishTurn(scores[leaf], unplayedCards[leaf],
+                tricks[leaf], ownId, possibleCards, policy, rng, played);
+    }
+
+    /*
+     * Updates total turns simulated and propagates the points for the root and
+     * each node on the path
+     */
+    private void backPropagate(int[] path, int length, long finalScore) {
+        totalTurns[root]++;
+        for (int i = 0; i < length; i++) {
+            int node = path[i];
+            int points = pointsWon(node, finalScore);
+            totalTurns[node]++;
+            totalPoints[node] += points;
+            if (entries[node] != TranspositionTable.NONE)
+                table.add(entries[node], points);
+        }
+    }
+
+    /*
+     * Same as backPropagate, for a shared tree whose root's total turns have
+     * already been incremented: replaces the virtual losses by the actual
+     * result
+     */
+    private void backPropagateShared(int[] path, int length,
+            long finalScore) {
+        for (int i = 0; i < length; i++) {
+            int node = path[i];
+            int points = pointsWon(node, finalScore);
+            INT_ELEMENT.getAndAdd(totalTurns, node, 1 - VIRTUAL_LOSS);
+            LONG_ELEMENT.getAndAdd(totalPoints, node, (long) points);
+            if (entries[node] != TranspositionTable.NONE)
+                table.add(entries[node], points);
+        }
+    }
+
+    /*
+     * Updates the statistics of all moves as first: going up from the end of
+     * the path, the children of each node whose card is played later in the
+     * turn by the player whose turn it is in the node get the result of the
+     * turn. The nodes in which it is the turn of the player searching the
+     * tree are skipped, as this player plays every card of its hand in every
+     * turn, which would give the same result to all their children
+     *
+     * @param played (long[]): cards played by each player after the path,
+     * indexed by the ordinal of its id, to which the cards of the path are
+     * added
+     */
+    private void backPropagateRave(int[] path, int length, long finalScore,
+            long[] played) {
+        for (int i = length - 1; i >= -1; i--) {
+            int node = i < 0 ? root : path[i];
+            PlayerId player = nextPlayer(tricks[node]);
+
+            if (player != null && player != ownId) {
+                long cards = played[player.ordinal()];
+                int points = PackedScore.totalPoints(finalScore,
+                        player.team());
+                for (int child = firstChild(node); child != NONE;
+                        child = nextSibling[child]) {
+                    if (!PackedCardSet.contains(cards, card(child)))
+                        continue;
+                    if (shared) {
+                        INT_ELEMENT.getAndAdd(raveTurns, child, 1);
+                        LONG_ELEMENT.getAndAdd(ravePoints, child,
+                                (long) points);
+                    } else {
+                        raveTurns[child]++;
+                        ravePoints[child] += points;
+                    }
+                }
+            }
+
+            if (i >= 0) {
+                int trick = tricks[node];
+                int last = PackedTrick.size(trick) - 1;
+                int previous = PackedTrick.player(trick, last).ordinal();
+                played[previous] = PackedCardSet.add(played[previous],
+                        PackedTrick.card(trick, last));
+            }
+        }
+    }
+
+    /*
+     * Calculates the best child node, i.e. the most interesting one to
+     * explore among its siblings
+     *
+     * @param node (int): the parent node
+     *
+     * @param c (int): constant which determines the importance of the fact
+     * that one child node is less explored in the choice of best child
+     *
+     * @return (int): the best child node, or NONE if the node has no child yet
+     */
+    private int bestChild(int node, int c) {
+        // value we will calculate for each node using formula, whose
+        // exploration term is c * sqrt(2 ln N) / sqrt(n)
+        double value;
+        double maxValue = 0;
+        int best = NONE;
+        double exploration = c * UcbTables.sqrtTwiceLog(totalTurns[node]);
+
+        // the children are chained from the most recent one, so the oldest
+        // one is kept in case of a tie
+        for (int child = firstChild(node); child != NONE;
+                child = nextSibling[child]) {
+            int childTotalTurns = totalTurns[child];
+
+            if (childTotalTurns <= 0)
+                return child;
+
+            value = estimatedPoints(child)
+                    + exploration * UcbTables.inverseSqrt(childTotalTurns);
+
+            if (best == NONE || value >= maxValue) {
+                maxValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Same as bestChild, but using the PUCT formula: the exploration term of
+     * a child is proportional to its prior, and decreases faster as it is
+     * simulated
+     *
+     * @return (int): the best child node, or NONE if the node has no child yet
+     */
+    private int bestPriorChild(int node) {
+        double exploration = PUCT_CONSTANT * Math.sqrt(totalTurns[node]);
+        double maxValue = 0;
+        int best = NONE;
+
+        for (int child = firstChild(node); child != NONE;
+                child = nextSibling[child]) {
+            int childTotalTurns = totalTurns[child];
+            if (childTotalTurns <= 0)
+                return child;
+
+            double value = estimatedPoints(child)
+                    + exploration * priors[child] / (1 + childTotalTurns);
+            if (best == NONE || value >= maxValue) {
+                maxValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * @return (boolean): whether the node, which has priors, may get a new
+     * child, which it may once it has been simulated at least as many times
+     * as the square of its number of children
+     */
+    private boolean widens(int node) {
+        int children = 0;
+        for (int child = firstChild(node); child != NONE;
+                child = nextSibling[child])
+            children++;
+        return children * children <= totalTurns[node];
+    }
+
+    /*
+     * @return (int): the card of the next child to create among the given
+     * cards, which are those of the inexistent children of the node: the most
+     * likely one with priors, the first one otherwise
+     */
+    private int newChildCard(int node, long inexistent) {
+        if (!usesPriors)
+            return PackedCardSet.get(inexistent, 0);
+        return CardPriors.strongestCard(nextTrick(tricks[node]), inexistent);
+    }
+
+    /*
+     * Same as bestChild, but only among the children whose card is in the
+     * given set, all of which must exist, and using the number of turns in
+     * which each child was available instead of the number of turns of the
+     * parent. The availability of these children is incremented
+     *
+     * @return (int): the best child among those whose card is in the set
+     */
+    private int bestAvailableChild(int node, long cards, int c) {
+        for (int child = firstChild[node]; child != NONE;
+                child = nextSibling[child]) {
+            if (PackedCardSet.contains(cards, card(child)))
+                availability[child]++;
+        }
+
+        double maxValue = 0;
+        int best = NONE;
+        for (int child = firstChild[node]; child != NONE;
+                child = nextSibling[child]) {
+            if (!PackedCardSet.contains(cards, card(child)))
+                continue;
+            int childTotalTurns = totalTurns[child];
+            if (childTotalTurns <= 0)
+                return child;
+
+            double value = estimatedPoints(child)
+                    + c * UcbTables.sqrtTwiceLog(availability[child])
+                            * UcbTables.inverseSqrt(childTotalTurns);
+            if (best == NONE || value >= maxValue) {
+                maxValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * @return (double): average points won in the turns simulated through the
+     * node, blended with RAVE with the average of all moves as first, whose
+     * weight decreases as the node is simulated: it is sqrt(k / (3n + k)) for
+     * n turns through the node and an equivalence k
+     */
+    private double estimatedPoints(int node) {
+        double points = averagePoints(node);
+        int amafTurns = raveTurns[node];
+        if (raveEquivalence == 0 || amafTurns <= 0)
+            return points;
+
+        double beta = Math.sqrt(raveEquivalence
+                / (3.0 * totalTurns[node] + raveEquivalence));
+        return (1 - beta) * points
+                + beta * ravePoints[node] * UcbTables.inverse(amafTurns);
+    }
+
+    /*
+     * @return (double): average points won in the turns simulated through the
+     * node, which may have been simulated by other nodes of the same state if
+     * there is a transposition table
+     */
+    private double averagePoints(int node) {
+        int entry = entries[node];
+        if (entry != TranspositionTable.NONE) {
+            int turns = table.totalTurns(entry);
+            if (turns > 0)
+                return table.totalPoints(entry) * UcbTables.inverse(turns);
+        }
+        return totalPoints[node] * UcbTables.inverse(totalTurns[node]);
+    }
+
+    /*
+     * Creates the child of the given node in which the given card has been
+     * played, and adds it in front of the node's children
+     *
+     * @return (int): the new child, NONE if the arena is full
+     */
+    private int addChild(int node, int card) {
+        long score = scores[node];
+        int trick = tricks[node];
+        long hash = hashes[node];
+        if (PackedTrick.isFull(trick)) {
+            long newScore = PackedScore.withAdditionalTrick(score,
+                    PackedTrick.winningPlayer(trick).team(),
+                    PackedTrick.points(trick));
+            int newTrick = PackedTrick.nextEmpty(trick);
+            if (table != null)
+                hash = Zobrist.withTrickCollected(hash, score, trick,
+                        newScore, newTrick);
+            score = newScore;
+            trick = newTrick;
+        }
+        if (table != null)
+            hash = Zobrist.withCardPlayed(hash, trick, card);
+        double prior = usesPriors ? CardPriors.prior(trick,
+                playableCards(unplayedCards[node], tricks[node]), card) : 0;
+
+        int child = newNode(score,
+                PackedCardSet.remove(unplayedCards[node], card),
+                PackedTrick.withAddedCard(trick, card), hash);
+        if (child == NONE)
+            return NONE;
+        priors[child] = prior;
+
+        if (!shared) {
+            nextSibling[child] = firstChild[node];
+            firstChild[node] = child;
+        } else {
+            // the child is only visible to the other workers once it has been
+            // completely initialised
+            int first;
+            do {
+                first = (int) INT_ELEMENT.getVolatile(firstChild, node);
+                nextSibling[child] = first;
+            } while (!INT_ELEMENT.compareAndSet(firstChild, node, first,
+                    child));
+        }
+        return child;
+    }
+
+    /*
+     * Allocates a node with the given state and hash, and no children yet
+     *
+     * @return (int): the new node, NONE if the arena is full
+     */
+    private int newNode(long pkScore, long pkUnplayedCards, int pkTrick,
+            long hash) {
+        int node;
+        if (!shared) {
+            if (size == scores.length)
+                return NONE;
+            node = size++;
+        } else {
+            do {
+                node = (int) SIZE.getVolatile(this);
+                if (node == scores.length)
+                    return NONE;
+            } while (!SIZE.compareAndSet(this, node, node + 1));
+        }
+
+        scores[node] = pkScore;
+        unplayedCards[node] = pkUnplayedCards;
+        tricks[node] = pkTrick;
+        totalPoints[node] = 0;
+        totalTurns[node] = 0;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        // in a determinized tree, the cards which can be played depend on
+        // the deal, so the children may be any unplayed card
+        inexistentChildNodes[node] = determinized ? pkUnplayedCards
+                : playableCards(pkUnplayedCards, pkTrick);
+        availability[node] = 0;
+        ravePoints[node] = 0;
+        raveTurns[node] = 0;
+        hashes[node] = hash;
+        entries[node] = table == null ? TranspositionTable.NONE
+                : table.entry(hash);
+        return node;
+    }
+
+    /*
+     * @return (long): packed version of the set of cards which can be played
+     * after the given state, by the player whose turn it is
+     */
+    private long playableCards(long pkUnplayedCards, int pkTrick) {
+        // the next card is played in the next trick once this one is full,
+        // and the turn is over once the last trick is full
+        PlayerId player = nextPlayer(pkTrick);
+        if (player == null)
+            return PackedCardSet.EMPTY;
+        pkTrick = nextTrick(pkTrick);
+
+        // This player plays cards from its hand, the others play unplayed
+        // cards they may hold
+        return PackedTrick.playableCards(pkTrick, PackedRollout
+                .possibleHand(pkUnplayedCards, player, ownId, possibleCards));
+    }
+
+    /*
+     * @return (PlayerId): the player who plays the next card after a state
+     * with the given trick, which may be full, null if the turn is over
+     */
+    private static PlayerId nextPlayer(int pkTrick) {
+        if (PackedTrick.isFull(pkTrick))
+            return PackedTrick.isLast(pkTrick) ? null
+                    : PackedTrick.winningPlayer(pkTrick);
+        return PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+    }
+
+    /*
+     * @return (int): the trick in which the next card is played after a state
+     * with the given trick, which may be full but not the last one
+     */
+    private static int nextTrick(int pkTrick) {
+        return PackedTrick.isFull(pkTrick) ? PackedTrick.nextEmpty(pkTrick)
+                : pkTrick;
+    }
+
+    /**
+     * Copies what the player searching the tree knows of the hands, which
+     * must not change during a search
+     *
+     * @param knowledge
+     *            (CardKnowledge): what the player searching the tree knows of
+     *            the hands
+     */
+    void know(CardKnowledge knowledge) {
+        for (PlayerId player : PlayerId.ALL)
+            possibleCards[player.ordinal()] = knowledge.possibleCards(player);
+    }
+
+    /*
+     * @return (int): the child of the node in which the given card has been
+     * played, NONE if it doesn't exist
+     */
+    private int child(int node, int card) {
+        int child = firstChild[node];
+        while (child != NONE && card(child) != card)
+            child = nextSibling[child];
+        return child;
+    }
+
+    /*
+     * Marks the nodes which are kept by compact: forward[node] becomes 0 for
+     * them, and NONE for the others. The children released are removed from
+     * the chains of children, and their cards can be tried again. As a child
+     * is always created after its parent, a single pass in the order of the
+     * arena is enough to find the nodes of the subtree of the root
+     */
+    private void mark(int minTurns) {
+        if (forward.length < size)
+            forward = new int[scores.length];
+
+        Arrays.fill(forward, 0, size, NONE);
+        forward[root] = 0;
+        for (int node = root; node < size; node++) {
+            if (forward[node] == NONE)
+                continue;
+
+            int last = NONE;
+            for (int child = firstChild[node]; child != NONE;
+                    child = nextSibling[child]) {
+                if (node != root && totalTurns[child] < minTurns) {
+                    // unless what is known of the hands now excludes it
+                    int card = card(child);
+                    if (determinized || PackedCardSet.contains(playableCards(
+                            unplayedCards[node], tricks[node]), card))
+                        inexistentChildNodes[node] = PackedCardSet
+                                .add(inexistentChildNodes[node], card);
+                    continue;
+                }
+                forward[child] = 0;
+                if (last == NONE)
+                    firstChild[node] = child;
+                else
+                    nextSibling[last] = child;
+                last = child;
+            }
+            if (last == NONE)
+                firstChild[node] = NONE;
+            else
+                nextSibling[last] = NONE;
+        }
+    }
+
+    /*
+     * Releases the nodes which are not in the subtree of the root, and the
+     * nodes below its children simulated fewer than the given number of
+     * times, with their subtrees, by sliding the nodes kept to the beginning
+     * of the arena
+     */
+    private void compact(int minTurns) {
+        mark(minTurns);
+
+        // forward[node] becomes the new index of each node of the subtree
+        int newSize = 0;
+        for (int node = root; node < size; node++) {
+            if (forward[node] != NONE)
+                forward[node] = newSize++;
+        }
+
+        // nodes only move towards the beginning, so moving them in order
+        // never overwrites a node which has not been moved yet
+        for (int node = root; node < size; node++) {
+            int to = forward[node];
+            if (to == NONE)
+                continue;
+            scores[to] = scores[node];
+            unplayedCards[to] = unplayedCards[node];
+            tricks[to] = tricks[node];
+            totalPoints[to] = totalPoints[node];
+            totalTurns[to] = totalTurns[node];
+            inexistentChildNodes[to] = inexistentChildNodes[node];
+            availability[to] = availability[node];
+            ravePoints[to] = ravePoints[node];
+            raveTurns[to] = raveTurns[node];
+            priors[to] = priors[node];
+            hashes[to] = hashes[node];
+            entries[to] = entries[node];
+            firstChild[to] = firstChild[node] == NONE ? NONE
+                    : forward[firstChild[node]];
+            // the siblings of the root are released
+            nextSibling[to] = node == root || nextSibling[node] == NONE ? NONE
+                    : forward[nextSibling[node]];
+        }
+
+        root = forward[root];
+        size = newSize;
+    }
+
+    /*
+     * @return (int): the packed card played last in the node's trick
+     */
+    private int card(int node) {
+        int trick = tricks[node];
+        return PackedTrick.card(trick, PackedTrick.size(trick) - 1);
+    }
+
+    /*
+     * @return (int): the points of the given final score for the team of the
+     * player who played the last card of the node's trick
+     */
+    private int pointsWon(int node, long finalScore) {
+        int trick = tricks[node];
+        return PackedScore.totalPoints(finalScore,
+                PackedTrick.player(trick, PackedTrick.size(trick) - 1).team());
+    }
+
+    /*
+     * @return (int): the first child of the node, read with acquire semantics
+     * if the tree is shared so that the child is completely initialised
+     */
+    private int firstChild(int node) {
+        return shared ? (int) INT_ELEMENT.getAcquire(firstChild, node)
+                : firstChild[node];
+    }
+}
@@ -20,9 +20,14 @@ public final class PacedPlayer implements Player {
      * The minimum time this takes to play a card
      */
     private final double minTime;
+    /**
+     * Whether the underlying player is given the minimum time to think
+     */
+    private final boolean thinking;
 
     /**
-     * Creates a new PacedPlayer
+     * Creates a new PacedPlayer, which waits once the underlying player has
+     * chosen its card
      * 
      * @param underlyingPlayer
      *            (Player): The player which this is going to behave as
@@ -30,9 +35,27 @@ public final class PacedPlayer implements Player {
      *            (double): The minimum time this takes to play a card
      */
     public PacedPlayer(Player underlyingPlayer, double minTime) {
+        this(underlyingPlayer, minTime, false);
+    }
+
+    /**
+     * Creates a new PacedPlayer
+     * 
+     * @param underlyingPlayer
+     *            (Player): The player which this is going to behave as
+     * @param minTime
+     *            (double): The minimum time this takes to play a card
+     * @param thinking
+     *            (boolean): whether the underlying player may think until the
+     *            minimum time has elapsed, instead of waiting once it has
+     *            chosen its card
+     */
+    public PacedPlayer(Player underlyingPlayer, double minTime,
+            boolean thinking) {
         Preconditions.checkArgument(minTime > 0);
         this.underlyingPlayer = underlyingPlayer;
         this.minTime = minTime;
+        this.thinking = thinking;
     }
 
     /* (non-Javadoc)
@@ -90,14 +113,17 @@ public final class PacedPlayer implements Player {
     public Card cardToPlay(TurnState state, CardSet hand) {
         // Stores current time
         long time = System.currentTimeMillis();
-        // Finds card to play
-        Card cardToPlay = underlyingPlayer.cardToPlay(state, hand);
+        // Finds card to play, possibly thinking during the whole minimum time
+        Card cardToPlay = thinking
+                ? underlyingPlayer.cardToPlay(state, hand,
+                        System.nanoTime() + (long) (minTime * 1e9))
+                : underlyingPlayer.cardToPlay(state, hand);
 
         long t = System.currentTimeMillis() - time;
         // If not enough time has elapsed, wait
         if (t < minTime * 1000) {
             try {
-                Thread.sleep((long) minTime * 1000 - t);
+                Thread.sleep((long) (minTime * 1000) - t);
             } catch (InterruptedException e) {
             }
         }
@@ -20,6 +20,24 @@ public final class PackedCard {
     private static final int RANK_START = 0, RANK_SIZE = 4;
     private static final int COLOR_START = 4, COLOR_SIZE = 2;
 
+    /*
+     * Points of each rank, for a trump card and for another card
+     */
+    private static final int[] TRUMP_RANK_POINTS = { 0, 0, 0, 14, 10, 20, 3,
+            4, 11 };
+    private static final int[] RANK_POINTS = { 0, 0, 0, 0, 10, 2, 3, 4, 11 };
+
+    /*
+     * Points of each card, at position [trump][card]
+     */
+    private static final int[][] POINTS = computePoints();
+    /*
+     * Strength of each card in a trick, at position [trump][base][card]: 0
+     * for the cards which can't win the trick, then the cards of the base
+     * color by rank, then the trumps by trump rank
+     */
+    private static final int[][][] STRENGTHS = computeStrengths();
+
     /**
      * Private constructor because PackedCard is non instantiable
      */
@@ -101,26 +119,29 @@ public final class PackedCard {
         // Checks if the cards are valid
         assert (isValid(pkCardL));
         assert (isValid(pkCardR));
-        // 1st case: the 2 cards have the same color
-        if (color(pkCardL).equals(color(pkCardR))) {
-            if (color(pkCardL).equals(trump)) {
-                // Subcase 1: the color is trump -> we use
-                // trumpOrdinals
-                return rank(pkCardL).trumpOrdinal() > rank(pkCardR)
-                        .trumpOrdinal();
-            }
-            // Subcase 2: the color is not trump -> we directly extract
-            // and compare their ranks
-            return Bits32.extract(pkCardL, RANK_START, RANK_SIZE) > Bits32
-                    .extract(pkCardR, RANK_START, RANK_SIZE);
-        }
-        // 2nd case: the two cards have different colors
-        if (color(pkCardL).equals(trump) || color(pkCardR).equals(trump)) {
-            // Subcase 1: one of the cards is trump -> it automatically wins
-            return color(pkCardL).equals(trump);
-        }
-        // Subcase 2: none of the cards is trump -> they can't be compared
-        return false;
+        // A card is better if it is stronger in a trick whose base color is
+        // the color of the second card
+        int[] strengths = STRENGTHS[trump.ordinal()][pkCardR >>> COLOR_START];
+        return strengths[pkCardL] > strengths[pkCardR];
+    }
+
+    /**
+     * Gives the strength of a card in a trick, the card with the greatest
+     * strength winning the trick
+     * 
+     * @param trump
+     *            (Card.Color): the trump color
+     * @param base
+     *            (Card.Color): the base color of the trick
+     * @param pkCard
+     *            (int): the packed card
+     * @return (int): 0 if the card is neither trump nor of the base color,
+     *         else its strength, which is greater for any trump than for any
+     *         card of the base color
+     */
+    static int strength(Card.Color trump, Card.Color base, int pkCard) {
+        assert (isValid(pkCard));
+        return STRENGTHS[trump.ordinal()][base.ordinal()][pkCard];
     }
 
     /**
@@ -135,43 +156,45 @@ public final class PackedCard {
     public static int points(Card.Color trump, int pkCard) {
         // Checks if the card is valid
         assert (isValid(pkCard));
-        // 1st option: the card's color is trump
-        if (color(pkCard).equals(trump)) {
-            switch (rank(pkCard)) {
-            case NINE:
-                return 14;
-            case TEN:
-                return 10;
-            case JACK:
-                return 20;
-            case QUEEN:
-                return 3;
-            case KING:
-                return 4;
-            case ACE:
-                return 11;
-            // SIX, SEVEN AND EIGHT are worth 0 points
-            default:
-                return 0;
-            }
-            // 2nd option: the card's color is not trump
-        } else {
-            switch (rank(pkCard)) {
-            case TEN:
-                return 10;
-            case JACK:
-                return 2;
-            case QUEEN:
-                return 3;
-            case KING:
-                return 4;
-            case ACE:
-                return 11;
-            // SIX, SEVEN, EIGHT and NINE are worth 0 points
-            default:
-                return 0;
-            }
-        }
+        return POINTS[trump.ordinal()][pkCard];
+    }
+
+    /*
+     * @return (int[][]): the points of each card, at position [trump][card]
+     */
+    private static int[][] computePoints() {
+        int[][] points = new int[Card.Color.COUNT][INVALID + 1];
+        for (Card.Color trump : Card.Color.ALL)
+            for (Card.Color color : Card.Color.ALL)
+                for (Rank rank : Rank.ALL)
+                    points[trump.ordinal()][pack(color, rank)] = color == trump
+                            ? TRUMP_RANK_POINTS[rank.ordinal()]
+                            : RANK_POINTS[rank.ordinal()];
+        return points;
+    }
+
+    /*
+     * @return (int[][][]): the strength of each card in a trick, at position
+     * [trump][base][card]
+     */
+    private static int[][][] computeStrengths() {
+        int[][][] strengths = new int[Card.Color.COUNT][Card.Color.COUNT][];
+        for (int[][] baseStrengths : strengths)
+            for (int i = 0; i < baseStrengths.length; i++)
+                baseStrengths[i] = new int[INVALID + 1];
+        for (Card.Color trump : Card.Color.ALL)
+            for (Card.Color base : Card.Color.ALL)
+                for (Card.Color color : Card.Color.ALL)
+                    for (Rank rank : Rank.ALL) {
+                        int strength = 0;
+                        if (color == trump)
+                            strength = 1 + Rank.COUNT + rank.trumpOrdinal();
+                        else if (color == base)
+                            strength = 1 + rank.ordinal();
+                        strengths[trump.ordinal()][base.ordinal()][pack(color,
+                                rank)] = strength;
+                    }
+        return strengths;
     }
 
     /**
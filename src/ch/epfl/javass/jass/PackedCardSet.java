@@ -1,6 +1,10 @@
 package ch.epfl.javass.jass;
 
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
 import java.util.StringJoiner;
+import java.util.function.IntConsumer;
 
 import ch.epfl.javass.bits.Bits64;
 import ch.epfl.javass.jass.Card.Color;
@@ -38,6 +42,12 @@ public final class PackedCardSet {
      */
     private static final long[] SUBSET_OF_COLOR = computeSubsetOfColor();
 
+    /*
+     * Array containing, at position [Rank.COUNT * s + k], the rank of the k'th
+     * card of the subset s of a color, given by the 9 bits of its ranks
+     */
+    private static final byte[] SELECT_IN_COLOR = computeSelectInColor();
+
     /*
      * Private constructor because PackedCardSet is not instantiable
      */
@@ -108,7 +118,9 @@ public final class PackedCardSet {
     }
 
     /**
-     * Gets the index'th card from pkCardSet
+     * Gets the index'th card from pkCardSet, in constant time: the color of
+     * the card is found by counting the cards of each color, then the card is
+     * read in a table giving the ranks of the cards of each subset of a color
      * 
      * @param pkCardSet
      *            (long): the card set from which to extract the card
@@ -121,14 +133,103 @@ public final class PackedCardSet {
         // Checks that the index is valid
         assert (index >= 0 && index < size(pkCardSet));
 
-        // Replaces the index rightmost 1s in pkCardSet by 0s
-        for (int i = 0; i < index; i++) {
-            pkCardSet &= ~Long.lowestOneBit(pkCardSet);
+        // Skips the colors holding fewer cards than the index, at most 3
+        int shift = 0;
+        int count = Long.bitCount(pkCardSet & SUBSET_OF_COLOR[0]);
+        while (index >= count) {
+            index -= count;
+            shift += COLOR_SUBSET_SIZE;
+            count = Long.bitCount((pkCardSet >>> shift) & SUBSET_OF_COLOR[0]);
         }
-        // Returns the number of 0s after the rightmost 1, that is the index of
-        // the last 1 and thus the index'th card
+        int subset = (int) ((pkCardSet >>> shift) & SUBSET_OF_COLOR[0]);
+        return shift + SELECT_IN_COLOR[Rank.COUNT * subset + index];
+    }
+
+    /**
+     * Chooses a card of pkCardSet at random, all the cards being equally
+     * likely. The index of the card is the high half of the product of a
+     * random int by the size of the set, which avoids the division done by
+     * SplittableRandom.nextInt(bound) except in the rare cases where the
+     * product must be drawn again to remain unbiased (Lemire's method)
+     * 
+     * @param pkCardSet
+     *            (long): the card set from which to choose the card, not
+     *            empty
+     * @param rng
+     *            (SplittableRandom): the RNG choosing the card
+     * @return (int): the card chosen
+     */
+    public static int random(long pkCardSet, SplittableRandom rng) {
+        assert (!isEmpty(pkCardSet));
+
+        long size = size(pkCardSet);
+        long product = Integer.toUnsignedLong(rng.nextInt()) * size;
+        if (Integer.toUnsignedLong((int) product) < size) {
+            // the products whose low half is below 2^32 mod size are drawn
+            // again, so that each index has the same number of products
+            long threshold = (1L << Integer.SIZE) % size;
+            while (Integer.toUnsignedLong((int) product) < threshold)
+                product = Integer.toUnsignedLong(rng.nextInt()) * size;
+        }
+        return get(pkCardSet, (int) (product >>> Integer.SIZE));
+    }
+
+    /**
+     * Gives the lowest card of pkCardSet. With withoutLowestCard, it is a
+     * cursor going through the cards of a set without creating any object:
+     * the cursor is the set of the cards left, its current card is the
+     * lowest one, and it moves to the next card by removing it
+     * 
+     * @param pkCardSet
+     *            (long): the card set, not empty
+     * @return (int): the lowest card of pkCardSet
+     */
+    public static int lowestCard(long pkCardSet) {
+        assert (isValid(pkCardSet));
+        assert (!isEmpty(pkCardSet));
+
         return Long.numberOfTrailingZeros(pkCardSet);
+    }
+
+    /**
+     * @param pkCardSet
+     *            (long): the card set
+     * @return (long): pkCardSet without its lowest card, empty if it is
+     *         empty
+     */
+    public static long withoutLowestCard(long pkCardSet) {
+        assert (isValid(pkCardSet));
+
+        return pkCardSet & (pkCardSet - 1);
+    }
+
+    /**
+     * Applies an action to each card of pkCardSet, from the lowest to the
+     * highest, without creating any object
+     * 
+     * @param pkCardSet
+     *            (long): the card set
+     * @param action
+     *            (IntConsumer): the action applied to each packed card
+     */
+    public static void forEach(long pkCardSet, IntConsumer action) {
+        assert (isValid(pkCardSet));
+
+        for (long cards = pkCardSet; cards != EMPTY; cards &= cards - 1)
+            action.accept(Long.numberOfTrailingZeros(cards));
+    }
 
+    /**
+     * @param pkCardSet
+     *            (long): the card set
+     * @return (Spliterator.OfInt): a spliterator going through the cards of
+     *         pkCardSet from the lowest to the highest, which splits the set
+     *         in two halves of the same size
+     */
+    public static Spliterator.OfInt spliterator(long pkCardSet) {
+        assert (isValid(pkCardSet));
+
+        return new CardSpliterator(pkCardSet);
     }
 
     /**
@@ -276,9 +377,7 @@ public final class PackedCardSet {
         assert (isValid(pkCardSet));
         StringJoiner j = new StringJoiner(",", "{", "}");
 
-        for (int i = 0; i < size(pkCardSet); i++) {
-            j.add(PackedCard.toString(get(pkCardSet, i)));
-        }
+        forEach(pkCardSet, c -> j.add(PackedCard.toString(c)));
         return j.toString();
     }
 
@@ -323,4 +422,79 @@ public final class PackedCardSet {
         }
         return colorSubsetArray;
     }
+
+    /*
+     * @return (byte[]): the table giving the rank of each card of each subset
+     * of a color
+     */
+    private static byte[] computeSelectInColor() {
+        byte[] select = new byte[(1 << Rank.COUNT) * Rank.COUNT];
+        for (int subset = 0; subset < 1 << Rank.COUNT; subset++) {
+            int k = 0;
+            for (int rank = 0; rank < Rank.COUNT; rank++) {
+                if ((subset & (1 << rank)) != 0)
+                    select[Rank.COUNT * subset + k++] = (byte) rank;
+            }
+        }
+        return select;
+    }
+
+    /*
+     * Spliterator of the cards of a packed card set, the cards left being
+     * removed from the set one by one
+     */
+    private static final class CardSpliterator implements Spliterator.OfInt {
+
+        private long cards;
+
+        private CardSpliterator(long cards) {
+            this.cards = cards;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (cards == EMPTY)
+                return false;
+            int card = Long.numberOfTrailingZeros(cards);
+            cards &= cards - 1;
+            action.accept(card);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            long remaining = cards;
+            cards = EMPTY;
+            forEach(remaining, action);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int size = Long.bitCount(cards);
+            if (size < 2)
+                return null;
+
+            // the lowest half of the cards goes to the new spliterator
+            long lowCards = cards & (singleton(get(cards, size / 2)) - 1);
+            cards &= ~lowCards;
+            return new CardSpliterator(lowCards);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.bitCount(cards);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL
+                    | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            // the cards are in their natural order
+            return null;
+        }
+    }
 }
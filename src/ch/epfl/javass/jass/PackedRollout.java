@@ -0,0 +1,196 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * Non instantiable class with static methods for finishing turns given by
+ * their packed components (score, unplayed cards and trick), the cards being
+ * chosen by a rollout policy, without creating any object
+ * 
+ * @author Yingxuan Duan (282512)
+ *
+ */
+public final class PackedRollout {
+
+    /**
+     * Private constructor because PackedRollout is non instantiable
+     */
+    private PackedRollout() {
+    }
+
+    /**
+     * Finishes a turn by making each player play a playable card chosen by
+     * the given policy, until the last trick has been collected. The player
+     * whose hand is known can only play the cards of that hand, the others
+     * can play any unplayed card they may hold
+     * 
+     * @param pkScore
+     *            (long): packed score of the state from which we finish the
+     *            turn
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards of that state
+     * @param pkTrick
+     *            (int): packed trick of that state, which may be full, or
+     *            INVALID if the turn is already over
+     * @param ownId
+     *            (PlayerId): id of the player whose hand is known
+     * @param possibleCards
+     *            (long[]): packed set of the cards each player may hold,
+     *            indexed by the ordinal of its id, that of the player whose
+     *            hand is known being its hand
+     * @param policy
+     *            (RolloutPolicy): policy choosing the cards
+     * @param rng
+     *            (SplittableRandom): RNG used to choose the cards
+     * @param played
+     *            (long[]): array to which the packed cards played by each
+     *            player are added, indexed by the ordinal of its id, null if
+     *            they are not needed
+     * @return (long): final packed score of the finished turn
+     */
+    public static long finishTurn(long pkScore, long pkUnplayedCards,
+            int pkTrick, PlayerId ownId, long[] possibleCards,
+            RolloutPolicy policy, SplittableRandom rng, long[] played) {
+
+        while (pkTrick != PackedTrick.INVALID) {
+            // collects the trick once all players have played
+            if (PackedTrick.isFull(pkTrick)) {
+                pkScore = PackedScore.withAdditionalTrick(pkScore,
+                        PackedTrick.winningPlayer(pkTrick).team(),
+                        PackedTrick.points(pkTrick));
+                pkTrick = PackedTrick.nextEmpty(pkTrick);
+                continue;
+            }
+
+            int card = rolloutCard(pkUnplayedCards, pkTrick, ownId,
+                    possibleCards, policy, rng);
+            if (played != null) {
+                int player = PackedTrick
+                        .player(pkTrick, PackedTrick.size(pkTrick)).ordinal();
+                played[player] = PackedCardSet.add(played[player], card);
+            }
+            pkUnplayedCards = PackedCardSet.remove(pkUnplayedCards, card);
+            pkTrick = PackedTrick.withAddedCard(pkTrick, card);
+        }
+        return pkScore;
+    }
+
+    /**
+     * Finishes a turn by making each player play a playable card of its
+     * hand chosen by the given policy, all hands being known, until the last
+     * trick has been collected
+     * 
+     * @param pkScore
+     *            (long): packed score of the state from which we finish the
+     *            turn
+     * @param pkTrick
+     *            (int): packed trick of that state, which may be full, or
+     *            INVALID if the turn is already over
+     * @param hands
+     *            (long[]): packed hand of each player, indexed by the ordinal
+     *            of its id, from which the played cards are removed
+     * @param policy
+     *            (RolloutPolicy): policy choosing the cards
+     * @param rng
+     *            (SplittableRandom): RNG used to choose the cards
+     * @return (long): final packed score of the finished turn
+     */
+    public static long finishTurn(long pkScore, int pkTrick, long[] hands,
+            RolloutPolicy policy, SplittableRandom rng) {
+        while (pkTrick != PackedTrick.INVALID) {
+            if (PackedTrick.isFull(pkTrick)) {
+                pkScore = PackedScore.withAdditionalTrick(pkScore,
+                        PackedTrick.winningPlayer(pkTrick).team(),
+                        PackedTrick.points(pkTrick));
+                pkTrick = PackedTrick.nextEmpty(pkTrick);
+                continue;
+            }
+
+            int card = rolloutCard(pkTrick, hands, policy, rng);
+            pkTrick = PackedTrick.withAddedCard(pkTrick, card);
+        }
+        return pkScore;
+    }
+
+    /**
+     * Chooses with the given policy a card among those the player whose turn
+     * it is can play
+     * 
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards
+     * @param pkTrick
+     *            (int): packed trick, which must not be full
+     * @param ownId
+     *            (PlayerId): id of the player whose hand is known
+     * @param possibleCards
+     *            (long[]): packed set of the cards each player may hold,
+     *            indexed by the ordinal of its id
+     * @param policy
+     *            (RolloutPolicy): policy choosing the card
+     * @param rng
+     *            (SplittableRandom): RNG used to choose the card
+     * @return (int): the packed card played
+     */
+    static int rolloutCard(long pkUnplayedCards, int pkTrick, PlayerId ownId,
+            long[] possibleCards, RolloutPolicy policy, SplittableRandom rng) {
+        PlayerId player = PackedTrick.player(pkTrick,
+                PackedTrick.size(pkTrick));
+        long hand = possibleHand(pkUnplayedCards, player, ownId,
+                possibleCards);
+
+        return policy.cardToPlay(pkTrick,
+                PackedTrick.playableCards(pkTrick, hand), rng);
+    }
+
+    /**
+     * Gives the unplayed cards a player may hold. As the random turns do not
+     * care about the number of cards of each player, the other players may
+     * have played all the cards the player could hold, in which case it may
+     * hold any unplayed card which is not in the known hand
+     * 
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards
+     * @param player
+     *            (PlayerId): the player
+     * @param ownId
+     *            (PlayerId): id of the player whose hand is known
+     * @param possibleCards
+     *            (long[]): packed set of the cards each player may hold,
+     *            indexed by the ordinal of its id
+     * @return (long): packed set of the unplayed cards the player may hold
+     */
+    static long possibleHand(long pkUnplayedCards, PlayerId player,
+            PlayerId ownId, long[] possibleCards) {
+        long hand = PackedCardSet.intersection(pkUnplayedCards,
+                possibleCards[player.ordinal()]);
+        if (PackedCardSet.isEmpty(hand))
+            hand = PackedCardSet.difference(pkUnplayedCards,
+                    possibleCards[ownId.ordinal()]);
+        return hand;
+    }
+
+    /**
+     * Chooses with the given policy a card among those the player whose turn
+     * it is can play from its hand, and removes it from that hand
+     * 
+     * @param pkTrick
+     *            (int): packed trick, which must not be full
+     * @param hands
+     *            (long[]): packed hand of each player, indexed by the ordinal
+     *            of its id
+     * @param policy
+     *            (RolloutPolicy): policy choosing the card
+     * @param rng
+     *            (SplittableRandom): RNG used to choose the card
+     * @return (int): the packed card played
+     */
+    static int rolloutCard(int pkTrick, long[] hands, RolloutPolicy policy,
+            SplittableRandom rng) {
+        int player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick))
+                .ordinal();
+        int card = policy.cardToPlay(pkTrick,
+                PackedTrick.playableCards(pkTrick, hands[player]), rng);
+        hands[player] = PackedCardSet.remove(hands[player], card);
+        return card;
+    }
+}
@@ -25,6 +25,24 @@ public final class PackedTrick {
     private static final int TRUMP_START = 30, TRUMP_SIZE = 2;
     private static final int FIRST_PLAYER_START = 28, FIRST_PLAYER_SIZE = 2;
 
+    /*
+     * Cards of the base color which force a player holding one of them to
+     * follow, at position [trump][base]: all of them, except the bour when
+     * the base color is trump
+     */
+    private static final long[][] FORCING_CARDS = computeForcingCards();
+    /*
+     * Cards which can be played by a player forced to follow, at position
+     * [trump][base][best card of the trick]
+     */
+    private static final long[][][] FOLLOWING_CARDS = computeFollowingCards();
+    /*
+     * Cards which can be played by a player who isn't forced to follow, at
+     * position [trump][best card of the trick], unless the hand holds none
+     * of them: all of them, except the trumps weaker than the best card
+     */
+    private static final long[][] OTHER_CARDS = computeOtherCards();
+
     /**
      * Private constructor because PackedTrick is non instantiable
      */
@@ -247,60 +265,20 @@ public final class PackedTrick {
         if (isEmpty(pkTrick))
             return pkHand;
 
-        // The trump color
-        Color trump = trump(pkTrick);
-        // The base color
-        Color base = baseColor(pkTrick);
-        // Trump cards in hand
-        long trumpInHand = PackedCardSet.subsetOfColor(pkHand, trump);
-        // Cards of base color in hand
-        long baseInHand = PackedCardSet.subsetOfColor(pkHand, base);
-        // The best card played yet
+        int trump = trump(pkTrick).ordinal();
+        int base = baseColor(pkTrick).ordinal();
         int best = bestCard(pkTrick);
-        // Whether the trick has been cut yet, that is if the color of the best
-        // card is trump
-        boolean trickHasBeenCut = PackedCard.color(best) == trump;
-        // If we have trumps to play which are better than bestCard
-        boolean hasBetterTrumps = !PackedCardSet.isEmpty(PackedCardSet
-                .intersection(pkHand, PackedCardSet.trumpAbove(best)));
-
-        // If the base color is trump
-        if (base == trump) {
-            // No trumps in hand or only bour -> play anything
-            if (PackedCardSet.isEmpty(trumpInHand)
-                    || (trumpInHand == PackedCardSet.singleton(
-                            PackedCard.pack(trump, Card.Rank.JACK)))) {
-                return pkHand;
-            }
-
-            // Else play any trump
-            return trumpInHand;
-        }
 
-        // If no base colors in hand
-        if (PackedCardSet.isEmpty(baseInHand)) {
-            if (trickHasBeenCut) {
-                // Hand is only weaker trumps -> play anything
-                if (pkHand == trumpInHand && !hasBetterTrumps)
-                    return pkHand;
-
-                // Else play any card except for weaker trump
-                return PackedCardSet.difference(pkHand,
-                        PackedCardSet.subsetOfColor(
-                                PackedCardSet.complement(
-                                        PackedCardSet.trumpAbove(best)),
-                                trump));
-            }
-            return pkHand;
-        }
-
-        // If trick hasn't been cut, play a base color or a trump
-        if (!trickHasBeenCut)
-            return PackedCardSet.union(trumpInHand, baseInHand);
-
-        // If it has been cut, play a base color or a better trump
-        return PackedCardSet.union(PackedCardSet.intersection(pkHand,
-                PackedCardSet.trumpAbove(best)), baseInHand);
+        long playable;
+        if (PackedCardSet.intersection(pkHand,
+                FORCING_CARDS[trump][base]) != PackedCardSet.EMPTY)
+            playable = PackedCardSet.intersection(pkHand,
+                    FOLLOWING_CARDS[trump][base][best]);
+        else
+            playable = PackedCardSet.intersection(pkHand,
+                    OTHER_CARDS[trump][best]);
+        // If the hand only holds weaker trumps, they can all be played
+        return playable == PackedCardSet.EMPTY ? pkHand : playable;
     }
 
     /**
@@ -333,33 +311,118 @@ public final class PackedTrick {
     public static PlayerId winningPlayer(int pkTrick) {
         assert isValid(pkTrick);
 
-        int bestCard = bestCard(pkTrick);
         // Winning player is the one who has played the best card
-        for (int i = 0; i < CARDS_PER_TRICK - 1; i++) {
-            if (card(pkTrick, i) == bestCard)
-                return player(pkTrick, i);
+        return player(pkTrick, bestIndex(pkTrick));
+    }
+
+    /*
+     * @return (long[][]): the cards forcing to follow, at position
+     * [trump][base]
+     */
+    private static long[][] computeForcingCards() {
+        long[][] forcingCards = new long[Color.COUNT][Color.COUNT];
+        for (Color trump : Color.ALL) {
+            for (Color base : Color.ALL) {
+                long cards = PackedCardSet
+                        .subsetOfColor(PackedCardSet.ALL_CARDS, base);
+                if (base == trump)
+                    cards = PackedCardSet.remove(cards,
+                            PackedCard.pack(trump, Card.Rank.JACK));
+                forcingCards[trump.ordinal()][base.ordinal()] = cards;
+            }
+        }
+        return forcingCards;
+    }
+
+    /*
+     * @return (long[][][]): the cards which can be played when following, at
+     * position [trump][base][best card]
+     */
+    private static long[][][] computeFollowingCards() {
+        long[][][] followingCards = new long[Color.COUNT][Color.COUNT][];
+        for (Color trump : Color.ALL) {
+            long trumps = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS,
+                    trump);
+            for (Color base : Color.ALL) {
+                long[] cards = new long[PackedCard.INVALID + 1];
+                long baseCards = PackedCardSet
+                        .subsetOfColor(PackedCardSet.ALL_CARDS, base);
+                for (long s = PackedCardSet.ALL_CARDS; s != 0; s &= s - 1) {
+                    int best = Long.numberOfTrailingZeros(s);
+                    if (base == trump)
+                        // Any trump
+                        cards[best] = trumps;
+                    else if (PackedCard.color(best) == trump)
+                        // A card of the base color or a better trump
+                        cards[best] = PackedCardSet.union(baseCards,
+                                PackedCardSet.trumpAbove(best));
+                    else
+                        // A card of the base color or any trump
+                        cards[best] = PackedCardSet.union(baseCards, trumps);
+                }
+                followingCards[trump.ordinal()][base.ordinal()] = cards;
+            }
+        }
+        return followingCards;
+    }
+
+    /*
+     * @return (long[][]): the cards which can be played when not following,
+     * at position [trump][best card]
+     */
+    private static long[][] computeOtherCards() {
+        long[][] otherCards = new long[Color.COUNT][PackedCard.INVALID + 1];
+        for (Color trump : Color.ALL) {
+            for (long s = PackedCardSet.ALL_CARDS; s != 0; s &= s - 1) {
+                int best = Long.numberOfTrailingZeros(s);
+                long cards = PackedCardSet.ALL_CARDS;
+                if (PackedCard.color(best) == trump)
+                    cards = PackedCardSet.difference(cards,
+                            PackedCardSet.subsetOfColor(PackedCardSet
+                                    .complement(PackedCardSet.trumpAbove(best)),
+                                    trump));
+                otherCards[trump.ordinal()][best] = cards;
+            }
         }
-        return player(pkTrick, CARDS_PER_TRICK - 1);
+        return otherCards;
     }
 
     /*
-     * Auxiliary method, returns the index of the best card in a given trick
+     * Auxiliary method, returns the best card in a given trick
      * 
      * @param pkTrick (int): packed trick
      * 
-     * @return (int): index of the strongest card in pkTrick
+     * @return (int): strongest card in pkTrick
      */
     private static int bestCard(int pkTrick) {
+        return card(pkTrick, bestIndex(pkTrick));
+    }
+
+    /*
+     * Auxiliary method, returns the index of the best card in a given trick,
+     * which must not be empty
+     * 
+     * @param pkTrick (int): packed trick
+     * 
+     * @return (int): index of the strongest card in pkTrick
+     */
+    private static int bestIndex(int pkTrick) {
         assert isValid(pkTrick);
 
-        int card;
-        int bestCard = card(pkTrick, 0);
+        Color trump = trump(pkTrick);
+        Color base = baseColor(pkTrick);
+        // The first card, of the base color, always has a strength of at
+        // least 1, so that the cards which can't win are never chosen
+        int bestIndex = 0;
+        int bestStrength = PackedCard.strength(trump, base, card(pkTrick, 0));
         for (int i = 1; i < size(pkTrick); i++) {
-            card = card(pkTrick, i);
-            if (PackedCard.isBetter(trump(pkTrick), card, bestCard))
-                bestCard = card;
+            int strength = PackedCard.strength(trump, base, card(pkTrick, i));
+            if (strength > bestStrength) {
+                bestIndex = i;
+                bestStrength = strength;
+            }
         }
-        return bestCard;
+        return bestIndex;
     }
 
     /**
@@ -21,6 +21,23 @@ public interface Player {
      */
     Card cardToPlay(TurnState state, CardSet hand);
 
+    /**
+     * Chooses the card to play, knowing that the player may think until the
+     * given deadline. By default, the deadline is ignored
+     * 
+     * @param state
+     *            (TurnState): the state of the current turn
+     * @param hand
+     *            (CardSet): the player's hand
+     * @param deadline
+     *            (long): time, as given by System.nanoTime(), until which the
+     *            player may think
+     * @return (Card): the card which the player wishes to play
+     */
+    default Card cardToPlay(TurnState state, CardSet hand, long deadline) {
+        return cardToPlay(state, hand);
+    }
+
     /**
      * Informs the player of his/her id and of the players' names
      * 
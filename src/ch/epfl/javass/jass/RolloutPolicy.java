@@ -0,0 +1,108 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * A way of choosing the cards played in the turns simulated by an MctsPlayer
+ * once they leave the tree. A policy works on packed components, must not
+ * create any object, and must not keep any state, so that it can be used by
+ * several workers at once
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+@FunctionalInterface
+public interface RolloutPolicy {
+
+    /**
+     * Plays a random playable card, the default policy
+     */
+    RolloutPolicy UNIFORM = RolloutPolicy::uniformCard;
+
+    /**
+     * Leads a random card. Then, unless the partner of the player already
+     * wins the trick, takes it with the least valuable card taking it if
+     * possible, and otherwise plays the least valuable card
+     */
+    RolloutPolicy GREEDY = RolloutPolicy::greedyCard;
+
+    /**
+     * Chooses the card to play
+     *
+     * @param pkTrick
+     *            (int): packed trick, which must not be full
+     * @param pkPlayableCards
+     *            (long): packed set of the cards the player whose turn it is
+     *            can play, which must not be empty
+     * @param rng
+     *            (SplittableRandom): RNG of the worker simulating the turn
+     * @return (int): the packed card played, among the playable ones
+     */
+    int cardToPlay(int pkTrick, long pkPlayableCards, SplittableRandom rng);
+
+    /**
+     * @param epsilon
+     *            (double): probability, between 0 and 1, of playing a random
+     *            card
+     * @return (RolloutPolicy): a policy playing a random card with the given
+     *         probability, and otherwise the card of the GREEDY policy
+     */
+    static RolloutPolicy epsilonGreedy(double epsilon) {
+        Preconditions.checkArgument(epsilon >= 0 && epsilon <= 1);
+        return (pkTrick, pkPlayableCards, rng) -> rng.nextDouble() < epsilon
+                ? UNIFORM.cardToPlay(pkTrick, pkPlayableCards, rng)
+                : GREEDY.cardToPlay(pkTrick, pkPlayableCards, rng);
+    }
+
+    /*
+     * @return (int): the card of the UNIFORM policy
+     */
+    private static int uniformCard(int pkTrick, long pkPlayableCards,
+            SplittableRandom rng) {
+        return PackedCardSet.random(pkPlayableCards, rng);
+    }
+
+    /*
+     * @return (int): the card of the GREEDY policy
+     */
+    private static int greedyCard(int pkTrick, long pkPlayableCards,
+            SplittableRandom rng) {
+        int size = PackedTrick.size(pkTrick);
+        if (size == 0)
+            return uniformCard(pkTrick, pkPlayableCards, rng);
+
+        // card currently winning the trick
+        Color trump = PackedTrick.trump(pkTrick);
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (PackedCard.isBetter(trump, PackedTrick.card(pkTrick, i),
+                    PackedTrick.card(pkTrick, best)))
+                best = i;
+        }
+        int bestCard = PackedTrick.card(pkTrick, best);
+        boolean partnerWins = PackedTrick.player(pkTrick, best)
+                .team() == PackedTrick.player(pkTrick, size).team();
+
+        int lowest = PackedCard.INVALID;
+        int lowestPoints = Integer.MAX_VALUE;
+        int taking = PackedCard.INVALID;
+        int takingPoints = Integer.MAX_VALUE;
+        for (long cards = pkPlayableCards; cards != 0; cards &= cards - 1) {
+            int card = Long.numberOfTrailingZeros(cards);
+            int points = PackedCard.points(trump, card);
+            if (points < lowestPoints) {
+                lowest = card;
+                lowestPoints = points;
+            }
+            if (!partnerWins && points < takingPoints
+                    && PackedCard.isBetter(trump, card, bestCard)) {
+                taking = card;
+                takingPoints = points;
+            }
+        }
+        return taking != PackedCard.INVALID ? taking : lowest;
+    }
+}
\ No newline at end of file
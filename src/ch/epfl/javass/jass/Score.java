@@ -29,8 +29,8 @@ public final class Score {
     }
 
     /**
-     * Checks if packed is a valid packed score, then creates a new Score
-     * corresponding to packed
+     * Checks if packed is a valid packed score, then gives the Score
+     * corresponding to packed, INITIAL being returned instead of a copy of it
      * 
      * @param packed
      *            (long): Packed version of the score
@@ -38,7 +38,7 @@ public final class Score {
      */
     public static Score ofPacked(long packed) {
         Preconditions.checkArgument(PackedScore.isValid(packed));
-        return new Score(packed);
+        return packed == PackedScore.INITIAL ? INITIAL : new Score(packed);
     }
 
     /**
@@ -0,0 +1,165 @@
+package ch.epfl.javass.jass;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size table of the statistics of the states reached during the
+ * searches of an MctsPlayer, indexed by their Zobrist hash, through which the
+ * nodes of the trees reaching the same state by different orders of cards
+ * share their statistics. The table is lock-free: entries are claimed and
+ * updated by atomic operations, so that several workers can use it at once.
+ * When all the entries in which a state may be stored are taken by other
+ * states, the state is simply not stored
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class TranspositionTable {
+
+    /**
+     * Index standing for the absence of an entry
+     */
+    static final int NONE = -1;
+
+    /*
+     * Number of consecutive entries in which a state may be stored
+     */
+    private static final int PROBES = 4;
+    /*
+     * Key marking an empty entry, the hashes equal to it being replaced by
+     * another key
+     */
+    private static final long EMPTY = 0;
+
+    private static final VarHandle INT_ELEMENT = MethodHandles
+            .arrayElementVarHandle(int[].class);
+    private static final VarHandle LONG_ELEMENT = MethodHandles
+            .arrayElementVarHandle(long[].class);
+
+    /*
+     * Hash of the state of each entry, and total points and turns added to it
+     */
+    private final long[] keys;
+    private final long[] totalPoints;
+    private final int[] totalTurns;
+    /*
+     * Number of states looked up, and of those already in the table
+     */
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Creates an empty table
+     *
+     * @param capacity
+     *            (int): minimal number of entries, rounded up to a power of 2
+     */
+    TranspositionTable(int capacity) {
+        int entries = Integer.highestOneBit(Math.max(capacity, PROBES));
+        if (entries < capacity)
+            entries <<= 1;
+
+        keys = new long[entries];
+        totalPoints = new long[entries];
+        totalTurns = new int[entries];
+    }
+
+    /**
+     * Finds the entry of the state with the given hash, claiming a free entry
+     * for it if it is not in the table yet
+     *
+     * @param hash
+     *            (long): Zobrist hash of the state
+     * @return (int): the entry of the state, NONE if the table has no room
+     *         for it
+     */
+    int entry(long hash) {
+        long key = hash == EMPTY ? ~EMPTY : hash;
+        int mask = keys.length - 1;
+        lookups.increment();
+
+        for (int i = 0; i < PROBES; i++) {
+            int entry = (int) (key + i) & mask;
+            long current = (long) LONG_ELEMENT.getVolatile(keys, entry);
+            if (current == EMPTY) {
+                if (LONG_ELEMENT.compareAndSet(keys, entry, EMPTY, key))
+                    return entry;
+                // another worker claimed the entry first
+                current = (long) LONG_ELEMENT.getVolatile(keys, entry);
+            }
+            if (current == key) {
+                hits.increment();
+                return entry;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds the result of a simulated turn to the statistics of an entry
+     *
+     * @param entry
+     *            (int): the entry
+     * @param points
+     *            (int): points won in the simulated turn
+     */
+    void add(int entry, int points) {
+        INT_ELEMENT.getAndAdd(totalTurns, entry, 1);
+        LONG_ELEMENT.getAndAdd(totalPoints, entry, (long) points);
+    }
+
+    /**
+     * @param entry
+     *            (int): the entry
+     * @return (int): number of turns simulated through the state of the entry
+     */
+    int totalTurns(int entry) {
+        return (int) INT_ELEMENT.getOpaque(totalTurns, entry);
+    }
+
+    /**
+     * @param entry
+     *            (int): the entry
+     * @return (long): total points won in the turns simulated through the
+     *         state of the entry
+     */
+    long totalPoints(int entry) {
+        return (long) LONG_ELEMENT.getOpaque(totalPoints, entry);
+    }
+
+    /**
+     * @return (long): number of states looked up since the counters were last
+     *         reset
+     */
+    long lookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return (long): number of states looked up which were already in the
+     *         table since the counters were last reset
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Resets the counters of looked up states
+     */
+    void resetCounters() {
+        lookups.reset();
+        hits.reset();
+    }
+
+    /**
+     * Empties the table. Must not be called while the table is being used
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(totalPoints, 0);
+        Arrays.fill(totalTurns, 0);
+    }
+}
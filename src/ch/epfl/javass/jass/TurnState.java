@@ -26,6 +26,11 @@ public final class TurnState {
      */
     private final int pkTrick;
 
+    /**
+     * Zobrist hash of the current state
+     */
+    private final long hash;
+
     /**
      * Private constructor of the class, which makes it non instantiable
      * 
@@ -35,11 +40,30 @@ public final class TurnState {
      *            (long): Set of unplayed cards
      * @param pkTrick
      *            (int): current trick
+     * @param hash
+     *            (long): Zobrist hash of the current state
      */
-    private TurnState(long pkScore, long pkUnplayedCards, int pkTrick) {
+    private TurnState(long pkScore, long pkUnplayedCards, int pkTrick,
+            long hash) {
         this.pkScore = pkScore;
         this.pkUnplayedCards = pkUnplayedCards;
         this.pkTrick = pkTrick;
+        this.hash = hash;
+    }
+
+    /**
+     * Private constructor computing the Zobrist hash of the state from scratch
+     * 
+     * @param pkScore
+     *            (long): Score of the current state
+     * @param pkUnplayedCards
+     *            (long): Set of unplayed cards
+     * @param pkTrick
+     *            (int): current trick
+     */
+    private TurnState(long pkScore, long pkUnplayedCards, int pkTrick) {
+        this(pkScore, pkUnplayedCards, pkTrick,
+                Zobrist.hash(pkScore, pkUnplayedCards, pkTrick));
     }
 
     /**
@@ -101,6 +125,15 @@ public final class TurnState {
         return pkTrick;
     }
 
+    /**
+     * @return (long): Zobrist hash of the state, equal for two states with the
+     *         same score, unplayed cards and trick, whatever the order in which
+     *         the cards have been played
+     */
+    public long zobristHash() {
+        return hash;
+    }
+
     /**
      * @return (Score): current score of the state
      */
@@ -156,7 +189,8 @@ public final class TurnState {
 
         return new TurnState(pkScore,
                 PackedCardSet.remove(pkUnplayedCards, card.packed()),
-                PackedTrick.withAddedCard(pkTrick, card.packed()));
+                PackedTrick.withAddedCard(pkTrick, card.packed()),
+                Zobrist.withCardPlayed(hash, pkTrick, card.packed()));
     }
 
     /**
@@ -167,11 +201,13 @@ public final class TurnState {
     public TurnState withTrickCollected() {
         if (!PackedTrick.isFull(pkTrick))
             throw new IllegalStateException("Trick is not full");
-        return new TurnState(
-                PackedScore.withAdditionalTrick(pkScore,
-                        PackedTrick.winningPlayer(pkTrick).team(),
-                        PackedTrick.points(pkTrick)),
-                pkUnplayedCards, PackedTrick.nextEmpty(pkTrick));
+        long newPkScore = PackedScore.withAdditionalTrick(pkScore,
+                PackedTrick.winningPlayer(pkTrick).team(),
+                PackedTrick.points(pkTrick));
+        int newPkTrick = PackedTrick.nextEmpty(pkTrick);
+        return new TurnState(newPkScore, pkUnplayedCards, newPkTrick,
+                Zobrist.withTrickCollected(hash, pkScore, pkTrick, newPkScore,
+                        newPkTrick));
     }
 
     /**
@@ -0,0 +1,70 @@
+package ch.epfl.javass.jass;
+
+/**
+ * Non instantiable class with static methods giving the terms of the UCB
+ * formula used to choose the children in the trees of MctsPlayer, read from
+ * tables computed once for the small numbers of turns, which are by far the
+ * most frequent, and computed directly for the others
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class UcbTables {
+
+    /*
+     * Number of turns up to which the terms are read from the tables
+     */
+    private static final int SIZE = 1 << 16;
+
+    /*
+     * For each number of turns n: sqrt(2 ln n), 1 / sqrt(n) and 1 / n
+     */
+    private static final double[] SQRT_TWICE_LOG = new double[SIZE];
+    private static final double[] INVERSE_SQRT = new double[SIZE];
+    private static final double[] INVERSE = new double[SIZE];
+
+    static {
+        for (int n = 1; n < SIZE; n++) {
+            SQRT_TWICE_LOG[n] = Math.sqrt(2 * Math.log(n));
+            INVERSE_SQRT[n] = 1 / Math.sqrt(n);
+            INVERSE[n] = 1.0 / n;
+        }
+    }
+
+    /**
+     * Private constructor because UcbTables is non instantiable
+     */
+    private UcbTables() {
+    }
+
+    /**
+     * @param turns
+     *            (int): number of turns simulated through a parent, at least 1
+     * @return (double): sqrt(2 ln turns), the factor of the exploration term
+     *         shared by all the children of the parent
+     */
+    static double sqrtTwiceLog(int turns) {
+        return turns < SIZE ? SQRT_TWICE_LOG[turns]
+                : Math.sqrt(2 * Math.log(turns));
+    }
+
+    /**
+     * @param turns
+     *            (int): number of turns simulated through a child, at least 1
+     * @return (double): 1 / sqrt(turns), by which the exploration term of the
+     *         child is proportional
+     */
+    static double inverseSqrt(int turns) {
+        return turns < SIZE ? INVERSE_SQRT[turns] : 1 / Math.sqrt(turns);
+    }
+
+    /**
+     * @param turns
+     *            (int): number of turns simulated through a node, at least 1
+     * @return (double): 1 / turns, by which the total points of the node are
+     *         multiplied to get its average points
+     */
+    static double inverse(int turns) {
+        return turns < SIZE ? INVERSE[turns] : 1.0 / turns;
+    }
+}
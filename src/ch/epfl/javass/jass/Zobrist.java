@@ -0,0 +1,151 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * Non instantiable class with static methods computing the Zobrist hash of a
+ * state of a turn given by its packed components (score, unplayed cards and
+ * trick). The hash is the exclusive or of random keys, one for each unplayed
+ * card, for each card of the trick at its position, for the index, first
+ * player and trump of the trick, and a key derived from the score, so that it
+ * can be updated incrementally when a card is played or a trick collected.
+ * The cards of the trick are hashed by position rather than as a set: the
+ * position of a card gives the player who played it, so two tricks holding
+ * the same cards in another order are different states and must not share
+ * an entry of the transposition table
+ *
+ * @author Yingxuan Duan (282512)
+ *
+ */
+final class Zobrist {
+
+    /*
+     * Seed of the keys, fixed so that the hash of a state never changes
+     */
+    private static final long SEED = 0x6A617373L;
+
+    /*
+     * Keys of the unplayed cards, and of the cards at each position of the
+     * trick, indexed by packed card
+     */
+    private static final long[] UNPLAYED = new long[Long.SIZE];
+    private static final long[][] TRICK_CARDS =
+            new long[PlayerId.COUNT][Long.SIZE];
+    /*
+     * Keys of the index, first player and trump of the trick
+     */
+    private static final long[] TRICK_INDEX = new long[Jass.TRICKS_PER_TURN];
+    private static final long[] FIRST_PLAYER = new long[PlayerId.COUNT];
+    private static final long[] TRUMP = new long[Card.Color.COUNT];
+    /*
+     * Key of the invalid trick which follows the last trick of the turn
+     */
+    private static final long TERMINAL;
+
+    static {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        fill(UNPLAYED, rng);
+        for (long[] keys : TRICK_CARDS)
+            fill(keys, rng);
+        fill(TRICK_INDEX, rng);
+        fill(FIRST_PLAYER, rng);
+        fill(TRUMP, rng);
+        TERMINAL = rng.nextLong();
+    }
+
+    /**
+     * Private constructor because Zobrist is non instantiable
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Computes the hash of a state from scratch
+     *
+     * @param pkScore
+     *            (long): packed score of the state
+     * @param pkUnplayedCards
+     *            (long): packed set of the unplayed cards of the state
+     * @param pkTrick
+     *            (int): packed trick of the state, INVALID if the turn is over
+     * @return (long): Zobrist hash of the state
+     */
+    static long hash(long pkScore, long pkUnplayedCards, int pkTrick) {
+        long hash = scoreHash(pkScore) ^ trickHash(pkTrick);
+        for (long cards = pkUnplayedCards; cards != 0; cards &= cards - 1)
+            hash ^= UNPLAYED[Long.numberOfTrailingZeros(cards)];
+        return hash;
+    }
+
+    /**
+     * Updates the hash of a state when a card is played
+     *
+     * @param hash
+     *            (long): hash of the state before the card is played
+     * @param pkTrick
+     *            (int): packed trick before the card is played, not full
+     * @param pkCard
+     *            (int): packed card played
+     * @return (long): hash of the state once the card has been played
+     */
+    static long withCardPlayed(long hash, int pkTrick, int pkCard) {
+        return hash ^ UNPLAYED[pkCard]
+                ^ TRICK_CARDS[PackedTrick.size(pkTrick)][pkCard];
+    }
+
+    /**
+     * Updates the hash of a state when its trick is collected
+     *
+     * @param hash
+     *            (long): hash of the state before the trick is collected
+     * @param pkScore
+     *            (long): packed score before the trick is collected
+     * @param pkTrick
+     *            (int): packed full trick collected
+     * @param newPkScore
+     *            (long): packed score once the trick has been collected
+     * @param newPkTrick
+     *            (int): packed trick which follows the collected one, INVALID
+     *            if it was the last one
+     * @return (long): hash of the state once the trick has been collected
+     */
+    static long withTrickCollected(long hash, long pkScore, int pkTrick,
+            long newPkScore, int newPkTrick) {
+        return hash ^ scoreHash(pkScore) ^ scoreHash(newPkScore)
+                ^ trickHash(pkTrick) ^ trickHash(newPkTrick);
+    }
+
+    /*
+     * @return (long): part of the hash depending on the trick
+     */
+    private static long trickHash(int pkTrick) {
+        if (pkTrick == PackedTrick.INVALID)
+            return TERMINAL;
+
+        long hash = TRICK_INDEX[PackedTrick.index(pkTrick)]
+                ^ FIRST_PLAYER[PackedTrick.player(pkTrick, 0).ordinal()]
+                ^ TRUMP[PackedTrick.trump(pkTrick).ordinal()];
+        for (int i = 0; i < PackedTrick.size(pkTrick); i++)
+            hash ^= TRICK_CARDS[i][PackedTrick.card(pkTrick, i)];
+        return hash;
+    }
+
+    /*
+     * @return (long): part of the hash depending on the score, obtained by
+     * mixing its bits as the score has too many values to have a key each
+     */
+    private static long scoreHash(long pkScore) {
+        long z = pkScore + SEED;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /*
+     * Fills the given array with random keys
+     */
+    private static void fill(long[] keys, SplittableRandom rng) {
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = rng.nextLong();
+    }
+}